@@ -4,6 +4,12 @@ import org.crimson.network.Network;
 import org.crimson.properties.ServerPropertiesConfiguration;
 import org.crimson.punishment.BanList;
 import org.crimson.punishment.BanListType;
+import org.crimson.scheduler.AsyncExecutor;
+import org.crimson.scheduler.ServerTask;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 /**
  * Represents the Crimson server.
@@ -32,11 +38,86 @@ public interface Server {
      */
     Network getNetwork();
 
+    /**
+     * Check if a player can take more outgoing data, on the main thread.
+     *
+     * @param address the address of the player
+     * @return {@code true} if so
+     * @see Network#isWritable(InetSocketAddress)
+     */
+    boolean canSendTo(InetSocketAddress address);
+
     /**
      * @return the version
      */
     String getVersion();
 
+    /**
+     * @return the amount of ticks since the server started.
+     */
+    long getCurrentTick();
+
+    /**
+     * @return the average ticks per second over the last 5 seconds, at most 20.
+     */
+    double getTicksPerSecond();
+
+    /**
+     * @return the average time a tick took over the last 5 seconds, in milliseconds.
+     */
+    double getAverageTickTime();
+
+    /**
+     * @return {@code true} if the server is not keeping up with 20 ticks per second.
+     */
+    boolean isOverloaded();
+
+    /**
+     * Run a task on the main server thread, during the next tick.
+     * <p>
+     * If too many tasks are queued the returned future completes exceptionally with a
+     * {@link java.util.concurrent.RejectedExecutionException}.
+     *
+     * @param task the task
+     * @return a future completed once the task has run.
+     */
+    CompletableFuture<Void> runSync(Runnable task);
+
+    /**
+     * Compute a value on the main server thread, during the next tick.
+     *
+     * @param task the task
+     * @param <T>  the type
+     * @return a future completed with the value.
+     */
+    <T> CompletableFuture<T> supplySync(Supplier<T> task);
+
+    /**
+     * Run a task on the main server thread after a delay.
+     *
+     * @param task  the task
+     * @param delay the delay in ticks
+     * @return the task
+     */
+    ServerTask runLater(Runnable task, long delay);
+
+    /**
+     * Run a task on the main server thread repeatedly, until cancelled.
+     *
+     * @param task   the task
+     * @param delay  the delay before the first run, in ticks
+     * @param period the period, in ticks
+     * @return the task
+     */
+    ServerTask runRepeating(Runnable task, long delay, long period);
+
+    /**
+     * Get the executor for blocking work, each task runs on its own virtual thread.
+     *
+     * @return the async executor
+     */
+    AsyncExecutor async();
+
     /**
      * Shutdown the server.
      */
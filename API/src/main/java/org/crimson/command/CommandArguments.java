@@ -0,0 +1,86 @@
+package org.crimson.command;
+
+import org.crimson.command.argument.CommandArgument;
+
+import java.util.List;
+
+/**
+ * Parsed arguments of a command.
+ * <p>
+ * Instances are immutable and may be reused when the same input is dispatched again.
+ */
+public final class CommandArguments {
+
+    /**
+     * Declared arguments.
+     */
+    private final List<CommandArgument> declared;
+
+    /**
+     * Raw argument tokens, without the command name.
+     */
+    private final String[] raw;
+
+    /**
+     * Parsed values, {@code null} for optional arguments that were left out.
+     */
+    private final Object[] values;
+
+    public CommandArguments(List<CommandArgument> declared, String[] raw, Object[] values) {
+        this.declared = declared;
+        this.raw = raw;
+        this.values = values;
+    }
+
+    /**
+     * Get a parsed argument.
+     *
+     * @param name the argument name
+     * @param <T>  the type
+     * @return the value or {@code null} if an optional argument was left out.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String name) {
+        for (int i = 0; i < declared.size(); i++) {
+            if (declared.get(i).name().equals(name)) return (T) values[i];
+        }
+        throw new IllegalArgumentException("Unknown argument " + name);
+    }
+
+    /**
+     * Get a parsed argument.
+     *
+     * @param name     the argument name
+     * @param fallback the value if an optional argument was left out.
+     * @param <T>      the type
+     * @return the value
+     */
+    public <T> T get(String name, T fallback) {
+        final T value = get(name);
+        return value == null ? fallback : value;
+    }
+
+    /**
+     * @param name the argument name
+     * @return {@code true} if the argument was given.
+     */
+    public boolean has(String name) {
+        return get(name) != null;
+    }
+
+    /**
+     * @return the amount of arguments given.
+     */
+    public int size() {
+        return raw.length;
+    }
+
+    /**
+     * @param index the index
+     * @return the raw token
+     */
+    public String getRaw(int index) {
+        return raw[index];
+    }
+
+}
@@ -11,25 +11,27 @@ public interface CommandDispatcher {
      * Register a default server command.
      *
      * @param command the command
-     * @return success or failure.
+     * @return {@code false} if the name or an alias is already taken.
      */
     boolean registerServerCommand(ServerCommand command);
 
     /**
      * Check if the provided input is a command
      *
-     * @param name the name
+     * @param input the input, only the first word is checked.
      * @return {@code true} if so
      */
-    boolean isCommand(String name);
+    boolean isCommand(String input);
 
     /**
-     * Dispatch the command
+     * Parse and execute a command, on the main server thread.
+     * <p>
+     * Permission and argument errors are sent to the sender.
      *
-     * @param command   the command
-     * @param arguments the arguments
-     * @param sender    the sender
+     * @param input  the whole input line, a leading {@code /} is ignored.
+     * @param sender the sender
+     * @return {@code false} if no such command exists.
      */
-    void dispatch(String command, String[] arguments, CommandSender sender);
+    boolean dispatch(String input, CommandSender sender);
 
 }
@@ -1,21 +1,37 @@
 package org.crimson.command;
 
+import org.crimson.command.argument.ArgumentType;
+import org.crimson.command.argument.CommandArgument;
 import org.crimson.command.sender.CommandSender;
 import org.crimson.permission.Permissible;
+import org.crimson.permission.Permission;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Represents a server command.
+ * <p>
+ * Aliases and arguments must be declared within the constructor, they are compiled when the command is registered.
  */
 public abstract class ServerCommand {
 
     /**
      * Permissions required to execute thie command.
      */
-    private final List<String> permissionsRequired = new ArrayList<>();
+    private Permission[] permissionsRequired = new Permission[0];
+
+    /**
+     * Other names for this command.
+     */
+    private final List<String> aliases = new ArrayList<>();
+
+    /**
+     * Declared arguments, in order.
+     */
+    private final List<CommandArgument> arguments = new ArrayList<>();
 
     /**
      * The name of the server command.
@@ -32,7 +48,43 @@ public abstract class ServerCommand {
      * @param permissions the permissions
      */
     protected void setPermissionRequired(String... permissions) {
-        this.permissionsRequired.addAll(Arrays.asList(permissions));
+        final Permission[] required = Arrays.copyOf(permissionsRequired, permissionsRequired.length + permissions.length);
+        for (int i = 0; i < permissions.length; i++) {
+            required[permissionsRequired.length + i] = Permission.of(permissions[i]);
+        }
+        this.permissionsRequired = required;
+    }
+
+    /**
+     * Add other names for this command.
+     *
+     * @param aliases the aliases
+     */
+    protected void addAliases(String... aliases) {
+        this.aliases.addAll(Arrays.asList(aliases));
+    }
+
+    /**
+     * Declare a required argument.
+     *
+     * @param name the name
+     * @param type the type
+     */
+    protected void addArgument(String name, ArgumentType<?> type) {
+        if (!arguments.isEmpty() && arguments.get(arguments.size() - 1).optional()) {
+            throw new IllegalStateException("Required arguments can not follow optional arguments.");
+        }
+        arguments.add(new CommandArgument(name, type, false));
+    }
+
+    /**
+     * Declare an optional argument.
+     *
+     * @param name the name
+     * @param type the type
+     */
+    protected void addOptionalArgument(String name, ArgumentType<?> type) {
+        arguments.add(new CommandArgument(name, type, true));
     }
 
     /**
@@ -42,16 +94,19 @@ public abstract class ServerCommand {
      * @return {@code true} if so
      */
     public boolean hasPermissionRequired(Permissible permissible) {
-        return permissionsRequired.stream().anyMatch(permissible::hasPermission);
+        for (Permission permission : permissionsRequired) {
+            if (permissible.hasPermission(permission)) return true;
+        }
+        return false;
     }
 
     /**
      * Execute
      *
-     * @param arguments the args
+     * @param arguments the parsed arguments
      * @param sender    the sender
      */
-    public abstract void execute(String[] arguments, CommandSender sender);
+    public abstract void execute(CommandArguments arguments, CommandSender sender);
 
     /**
      * @return the command name.
@@ -59,4 +114,27 @@ public abstract class ServerCommand {
     public String getName() {
         return name;
     }
+
+    /**
+     * @return other names for this command.
+     */
+    public List<String> getAliases() {
+        return Collections.unmodifiableList(aliases);
+    }
+
+    /**
+     * @return the declared arguments.
+     */
+    public List<CommandArgument> getArguments() {
+        return Collections.unmodifiableList(arguments);
+    }
+
+    /**
+     * @return how to use this command, for example {@code /ban <player:player> [duration:duration]}
+     */
+    public String getUsage() {
+        final StringBuilder builder = new StringBuilder("/").append(name);
+        for (CommandArgument argument : arguments) builder.append(' ').append(argument);
+        return builder.toString();
+    }
 }
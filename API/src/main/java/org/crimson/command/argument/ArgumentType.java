@@ -0,0 +1,26 @@
+package org.crimson.command.argument;
+
+/**
+ * Parses a single command argument.
+ * <p>
+ * Parsing must only depend on the token, results are cached and reused for repeated input.
+ *
+ * @param <T> the parsed type
+ */
+public interface ArgumentType<T> {
+
+    /**
+     * Parse a token.
+     *
+     * @param token the token
+     * @return the value
+     * @throws IllegalArgumentException if the token is not valid.
+     */
+    T parse(String token);
+
+    /**
+     * @return the name shown within command usage.
+     */
+    String getName();
+
+}
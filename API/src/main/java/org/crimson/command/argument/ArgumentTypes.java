@@ -0,0 +1,116 @@
+package org.crimson.command.argument;
+
+import org.crimson.network.InetRange;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Built-in argument types.
+ */
+public final class ArgumentTypes {
+
+    /**
+     * Maximum length of a player name.
+     */
+    private static final int MAXIMUM_NAME_LENGTH = 16;
+
+    /**
+     * Any single word.
+     */
+    public static final ArgumentType<String> WORD = of("word", token -> token);
+
+    /**
+     * A whole number.
+     */
+    public static final ArgumentType<Integer> INTEGER = of("int", token -> {
+        try {
+            return Integer.parseInt(token);
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException(token + " is not a number.");
+        }
+    });
+
+    /**
+     * A player name, letters, digits and underscores only.
+     */
+    public static final ArgumentType<String> PLAYER = of("player", token -> {
+        if (token.length() > MAXIMUM_NAME_LENGTH) throw new IllegalArgumentException(token + " is not a valid player name.");
+        for (int i = 0; i < token.length(); i++) {
+            final char c = token.charAt(i);
+            if (!(c == '_' || c >= '0' && c <= '9' || c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z')) {
+                throw new IllegalArgumentException(token + " is not a valid player name.");
+            }
+        }
+        return token;
+    });
+
+    /**
+     * A duration such as {@code 30m}, {@code 1d12h} or {@code 2w}.
+     */
+    public static final ArgumentType<Duration> DURATION = of("duration", ArgumentTypes::parseDuration);
+
+    /**
+     * An IP address or CIDR range.
+     */
+    public static final ArgumentType<InetRange> ADDRESS = of("address", InetRange::parse);
+
+    private ArgumentTypes() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Create an argument type.
+     *
+     * @param name   the name
+     * @param parser the parser
+     * @param <T>    the type
+     * @return the type
+     */
+    public static <T> ArgumentType<T> of(String name, Function<String, T> parser) {
+        return new ArgumentType<>() {
+            @Override
+            public T parse(String token) {
+                return parser.apply(token);
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+    }
+
+    /**
+     * Parse a duration made of number and unit pairs.
+     *
+     * @param token the token
+     * @return the duration
+     */
+    private static Duration parseDuration(String token) {
+        long seconds = 0, value = -1;
+        for (int i = 0; i < token.length(); i++) {
+            final char c = token.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = (value == -1 ? 0 : value) * 10 + (c - '0');
+                if (value > Integer.MAX_VALUE) throw new IllegalArgumentException(token + " is too long.");
+                continue;
+            }
+            if (value == -1) throw new IllegalArgumentException(token + " is not a valid duration.");
+
+            seconds += value * switch (Character.toLowerCase(c)) {
+                case 's' -> 1L;
+                case 'm' -> 60L;
+                case 'h' -> 3600L;
+                case 'd' -> 86400L;
+                case 'w' -> 604800L;
+                default -> throw new IllegalArgumentException(token + " is not a valid duration.");
+            };
+            value = -1;
+        }
+
+        if (value != -1 || seconds == 0) throw new IllegalArgumentException(token + " is not a valid duration.");
+        return Duration.ofSeconds(seconds);
+    }
+
+}
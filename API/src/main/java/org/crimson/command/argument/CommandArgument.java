@@ -0,0 +1,17 @@
+package org.crimson.command.argument;
+
+/**
+ * A declared command argument.
+ *
+ * @param name     the name
+ * @param type     the type
+ * @param optional if this argument may be left out, only trailing arguments can be optional.
+ */
+public record CommandArgument(String name, ArgumentType<?> type, boolean optional) {
+
+    @Override
+    public String toString() {
+        return optional ? "[" + name + ":" + type.getName() + "]" : "<" + name + ":" + type.getName() + ">";
+    }
+
+}
@@ -0,0 +1,222 @@
+package org.crimson.network;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * A range of IP addresses in CIDR notation, for example {@code 10.0.0.0/8}.
+ * A single address is a range with a full prefix.
+ * An IPv4-mapped IPv6 range such as {@code ::ffff:10.0.0.0/104} becomes the IPv4 range {@code 10.0.0.0/8},
+ * the way Java folds those addresses.
+ *
+ * @param address      the address, with every bit past the prefix cleared.
+ * @param prefixLength the amount of leading bits that are matched.
+ */
+public record InetRange(InetAddress address, int prefixLength) {
+
+    /**
+     * Bits before the IPv4 address within an IPv4-mapped IPv6 address.
+     */
+    private static final int MAPPED_PREFIX_LENGTH = 96;
+
+    public InetRange {
+        final int bits = address.getAddress().length * 8;
+        if (prefixLength < 0 || prefixLength > bits) {
+            throw new IllegalArgumentException("Invalid prefix length " + prefixLength + " for " + address.getHostAddress());
+        }
+        address = mask(address, prefixLength);
+    }
+
+    /**
+     * Parse an address or CIDR range, never performs a DNS lookup.
+     *
+     * @param value the value
+     * @return the range
+     * @throws IllegalArgumentException if the value is not an IP address or range.
+     */
+    public static InetRange parse(String value) {
+        final int slash = value.indexOf('/');
+        final String literal = slash == -1 ? value : value.substring(0, slash);
+        final InetAddress address = parseAddress(literal);
+
+        int prefixLength = address.getAddress().length * 8;
+        if (slash != -1) {
+            try {
+                prefixLength = Integer.parseInt(value.substring(slash + 1));
+            } catch (NumberFormatException exception) {
+                throw new IllegalArgumentException("Invalid prefix length within " + value);
+            }
+
+            // an IPv4-mapped literal comes back as its IPv4 address, its prefix also counts the 96 bits before it.
+            if (address instanceof Inet4Address && literal.indexOf(':') != -1) {
+                if (prefixLength < MAPPED_PREFIX_LENGTH || prefixLength > 128) {
+                    throw new IllegalArgumentException("Invalid prefix length " + prefixLength + " for IPv4-mapped " + literal);
+                }
+                prefixLength -= MAPPED_PREFIX_LENGTH;
+            }
+        }
+        return new InetRange(address, prefixLength);
+    }
+
+    /**
+     * Parse a literal IPv4 or IPv6 address, by hand so nothing is ever resolved.
+     *
+     * @param value the value
+     * @return the address
+     */
+    private static InetAddress parseAddress(String value) {
+        final byte[] bytes = value.indexOf(':') == -1 ? parseIPv4(value) : parseIPv6(value);
+        if (bytes == null) throw new IllegalArgumentException("Invalid IP address " + value);
+
+        try {
+            return InetAddress.getByAddress(bytes);
+        } catch (UnknownHostException exception) {
+            throw new IllegalArgumentException("Invalid IP address " + value);
+        }
+    }
+
+    /**
+     * Parse a dotted IPv4 address.
+     *
+     * @param value the value
+     * @return the 4 bytes or {@code null} if invalid.
+     */
+    private static byte[] parseIPv4(String value) {
+        final String[] parts = value.split("\\.", -1);
+        if (parts.length != 4) return null;
+
+        final byte[] bytes = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            final int octet = parseNumber(parts[i], 10, 3);
+            if (octet < 0 || octet > 255) return null;
+            bytes[i] = (byte) octet;
+        }
+        return bytes;
+    }
+
+    /**
+     * Parse an IPv6 address, with at most one {@code ::} and optionally a dotted IPv4 address as its last 32 bits.
+     * Scoped addresses are refused.
+     *
+     * @param value the value
+     * @return the 16 bytes or {@code null} if invalid.
+     */
+    private static byte[] parseIPv6(String value) {
+        final int compressed = value.indexOf("::");
+        if (compressed != -1 && value.indexOf("::", compressed + 1) != -1) return null;
+
+        final byte[] bytes = new byte[16];
+        if (compressed == -1) {
+            return parseGroups(value, bytes, 0, 16) == 16 ? bytes : null;
+        }
+
+        final String head = value.substring(0, compressed), tail = value.substring(compressed + 2);
+        // an embedded IPv4 address is only allowed as the last 32 bits.
+        if (head.indexOf('.') != -1) return null;
+
+        final int headLength = head.isEmpty() ? 0 : parseGroups(head, bytes, 0, 14);
+        if (headLength < 0) return null;
+
+        // parse the tail alone and move it to the end, the zeros between are the compressed groups.
+        final byte[] tailBytes = new byte[16];
+        final int tailLength = tail.isEmpty() ? 0 : parseGroups(tail, tailBytes, 0, 14 - headLength);
+        if (tailLength < 0) return null;
+
+        System.arraycopy(tailBytes, 0, bytes, 16 - tailLength, tailLength);
+        return bytes;
+    }
+
+    /**
+     * Parse colon separated groups of up to 4 hexadecimal digits, the last one may be a dotted IPv4 address.
+     *
+     * @param value  the groups
+     * @param bytes  receives the bytes
+     * @param offset where to put them
+     * @param limit  the most bytes the groups may take
+     * @return the amount of bytes parsed or {@code -1} if invalid.
+     */
+    private static int parseGroups(String value, byte[] bytes, int offset, int limit) {
+        final String[] groups = value.split(":", -1);
+
+        int length = 0;
+        for (int i = 0; i < groups.length; i++) {
+            if (i == groups.length - 1 && groups[i].indexOf('.') != -1) {
+                final byte[] embedded = parseIPv4(groups[i]);
+                if (embedded == null || length + 4 > limit) return -1;
+
+                System.arraycopy(embedded, 0, bytes, offset + length, 4);
+                length += 4;
+                continue;
+            }
+
+            final int group = parseNumber(groups[i], 16, 4);
+            if (group < 0 || length + 2 > limit) return -1;
+
+            bytes[offset + length++] = (byte) (group >> 8);
+            bytes[offset + length++] = (byte) group;
+        }
+        return length;
+    }
+
+    /**
+     * Parse a number made of digits only, without any sign.
+     *
+     * @param value     the value
+     * @param radix     the radix
+     * @param maxDigits the most digits allowed
+     * @return the number or {@code -1} if invalid.
+     */
+    private static int parseNumber(String value, int radix, int maxDigits) {
+        if (value.isEmpty() || value.length() > maxDigits) return -1;
+
+        int number = 0;
+        for (int i = 0; i < value.length(); i++) {
+            final int digit = Character.digit(value.charAt(i), radix);
+            // Character.digit also takes non ASCII digits.
+            if (digit < 0 || value.charAt(i) > 'f') return -1;
+            number = number * radix + digit;
+        }
+        return number;
+    }
+
+    /**
+     * Clear every bit past the prefix.
+     *
+     * @param address      the address
+     * @param prefixLength the prefix length
+     * @return the masked address
+     */
+    private static InetAddress mask(InetAddress address, int prefixLength) {
+        final byte[] bytes = address.getAddress();
+        for (int i = 0; i < bytes.length; i++) {
+            final int remaining = prefixLength - i * 8;
+            if (remaining >= 8) continue;
+            bytes[i] &= remaining <= 0 ? 0 : (byte) (0xFF << (8 - remaining));
+        }
+
+        try {
+            return InetAddress.getByAddress(bytes);
+        } catch (UnknownHostException exception) {
+            throw new IllegalArgumentException(exception);
+        }
+    }
+
+    /**
+     * Check if an address is within this range.
+     *
+     * @param other the address
+     * @return {@code true} if so
+     */
+    public boolean contains(InetAddress other) {
+        final byte[] bytes = other.getAddress();
+        if (bytes.length != address.getAddress().length) return false;
+        return mask(other, prefixLength).equals(address);
+    }
+
+    @Override
+    public String toString() {
+        return address.getHostAddress() + "/" + prefixLength;
+    }
+
+}
@@ -1,10 +1,35 @@
 package org.crimson.network;
 
+import java.net.InetSocketAddress;
+
 /**
  * Basic networking component.
  */
 public interface Network {
 
+    /**
+     * Check if the session of a player can take more outgoing data, on the main thread.
+     * <p>
+     * Not while the client or the server socket is congested, data the client can do without should then be held back.
+     *
+     * @param address the address of the player
+     * @return {@code true} if so, {@code false} if congested or there is no such session.
+     */
+    boolean isWritable(InetSocketAddress address);
+
+    /**
+     * @return bytes of network buffers retained by every session together.
+     */
+    long getRetainedBytes();
+
+    /**
+     * @return messages dropped because a session or the server retained too much.
+     */
+    long getDroppedMessages();
 
+    /**
+     * @return sessions closed because they retained too much.
+     */
+    long getSessionsClosedOverBudget();
 
 }
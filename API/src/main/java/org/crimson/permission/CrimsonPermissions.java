@@ -14,6 +14,11 @@ public interface CrimsonPermissions {
      */
     String SERVER_STOP = "crimson.server.stop";
 
+    /**
+     * Every permission.
+     */
+    String WILDCARD = "*";
+
     /**
      * Set of all permissions.
      */
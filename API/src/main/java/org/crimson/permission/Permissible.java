@@ -30,7 +30,15 @@ public interface Permissible {
     boolean hasPermission(String name);
 
     /**
-     * Set permissions
+     * If this permission holder has the provided {@code permission}
+     *
+     * @param permission the permission
+     * @return {@code true} if so
+     */
+    boolean hasPermission(Permission permission);
+
+    /**
+     * Set permissions, a node ending with {@code *} grants every node below it.
      *
      * @param permissions the permissions
      */
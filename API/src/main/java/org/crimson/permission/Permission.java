@@ -0,0 +1,120 @@
+package org.crimson.permission;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An interned permission node.
+ * <p>
+ * Every node name maps to exactly one instance with a small integer id, so holders can store permissions as bits.
+ * Nodes are never removed.
+ */
+public final class Permission {
+
+    /**
+     * Nodes by name.
+     */
+    private static final Map<String, Permission> BY_NAME = new ConcurrentHashMap<>();
+
+    /**
+     * Nodes by id, only written while holding the class lock.
+     */
+    private static volatile Permission[] byId = new Permission[0];
+
+    /**
+     * The node name, lower case.
+     */
+    private final String name;
+
+    /**
+     * The id.
+     */
+    private final int id;
+
+    private Permission(String name, int id) {
+        this.name = name;
+        this.id = id;
+    }
+
+    /**
+     * Get or create the node for a name.
+     *
+     * @param name the name, such as {@code crimson.server.stop}
+     * @return the permission
+     * @throws IllegalArgumentException if the name is empty or a wildcard.
+     */
+    public static Permission of(String name) {
+        final Permission existing = BY_NAME.get(name);
+        return existing != null ? existing : create(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Get the node for a name without creating it.
+     *
+     * @param name the name
+     * @return the permission or {@code null}
+     */
+    public static Permission find(String name) {
+        final Permission existing = BY_NAME.get(name);
+        return existing != null ? existing : BY_NAME.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Create a new node.
+     *
+     * @param name the lower case name
+     * @return the permission
+     */
+    private static synchronized Permission create(String name) {
+        if (name.isEmpty() || name.endsWith("*")) throw new IllegalArgumentException("Invalid permission node " + name);
+
+        final Permission existing = BY_NAME.get(name);
+        if (existing != null) return existing;
+
+        final Permission[] current = byId;
+        final Permission permission = new Permission(name, current.length);
+        final Permission[] next = new Permission[current.length + 1];
+        System.arraycopy(current, 0, next, 0, current.length);
+        next[current.length] = permission;
+
+        byId = next;
+        BY_NAME.put(name, permission);
+        return permission;
+    }
+
+    /**
+     * @return every node, ordered by id.
+     */
+    public static List<Permission> all() {
+        return List.of(byId);
+    }
+
+    /**
+     * @return the amount of nodes, also increases every time one is created.
+     */
+    public static int count() {
+        return byId.length;
+    }
+
+    /**
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the id
+     */
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
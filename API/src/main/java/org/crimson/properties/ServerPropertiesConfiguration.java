@@ -23,6 +23,21 @@ public interface ServerPropertiesConfiguration {
      */
     boolean loadServerProperties(Path where);
 
+    /**
+     * Read the server.properties file again, updating properties that changed and notifying their listeners.
+     *
+     * @return {@code true} if reloading was successful.
+     */
+    boolean reloadServerProperties();
+
+    /**
+     * Register a typed property, its value is read from the file from now on.
+     *
+     * @param property the property
+     * @throws IllegalArgumentException if a property with the same name is already registered.
+     */
+    void register(ServerProperty<?> property);
+
     /**
      * Get a server property as a string.
      *
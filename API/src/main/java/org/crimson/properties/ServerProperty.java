@@ -0,0 +1,181 @@
+package org.crimson.properties;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A typed server.properties key.
+ * <p>
+ * The value is parsed once when the file is loaded or reloaded, so {@link #get()} is a plain volatile read.
+ *
+ * @param <T> the type
+ */
+public final class ServerProperty<T> {
+
+    /**
+     * The name in the file.
+     */
+    private final String name;
+
+    /**
+     * The default value.
+     */
+    private final T defaultValue;
+
+    /**
+     * Parses the file value, throws {@link IllegalArgumentException} if it is not valid.
+     */
+    private final Function<String, T> parser;
+
+    /**
+     * Checks a parsed value.
+     */
+    private final Predicate<T> validator;
+
+    /**
+     * If changes only apply after a restart.
+     */
+    private final boolean requiresRestart;
+
+    /**
+     * Change listeners, given the old and new value.
+     */
+    private final List<BiConsumer<T, T>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * The current value.
+     */
+    private volatile T value;
+
+    private ServerProperty(String name, T defaultValue, Function<String, T> parser, Predicate<T> validator, boolean requiresRestart) {
+        this.name = name;
+        this.defaultValue = defaultValue;
+        this.parser = parser;
+        this.validator = validator;
+        this.requiresRestart = requiresRestart;
+        this.value = defaultValue;
+    }
+
+    /**
+     * @param name         the name
+     * @param defaultValue the default value
+     * @return a new string property
+     */
+    public static ServerProperty<String> ofString(String name, String defaultValue) {
+        return new ServerProperty<>(name, defaultValue, Function.identity(), value -> true, false);
+    }
+
+    /**
+     * @param name         the name
+     * @param defaultValue the default value
+     * @param minimum      the smallest allowed value
+     * @param maximum      the largest allowed value
+     * @return a new integer property
+     */
+    public static ServerProperty<Integer> ofInteger(String name, int defaultValue, int minimum, int maximum) {
+        return new ServerProperty<>(name, defaultValue, Integer::valueOf, value -> value >= minimum && value <= maximum, false);
+    }
+
+    /**
+     * @param name         the name
+     * @param defaultValue the default value
+     * @return a new boolean property, only {@code true} and {@code false} are valid.
+     */
+    public static ServerProperty<Boolean> ofBoolean(String name, boolean defaultValue) {
+        return new ServerProperty<>(name, defaultValue, value -> switch (value.toLowerCase()) {
+            case "true" -> true;
+            case "false" -> false;
+            default -> throw new IllegalArgumentException("Not a boolean: " + value);
+        }, value -> true, false);
+    }
+
+    /**
+     * @return a copy of this property whose changes only apply after a restart.
+     */
+    public ServerProperty<T> requiresRestart() {
+        return new ServerProperty<>(name, defaultValue, parser, validator, true);
+    }
+
+    /**
+     * @return the current value
+     */
+    public T get() {
+        return value;
+    }
+
+    /**
+     * @return the name in the file
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the default value
+     */
+    public T getDefaultValue() {
+        return defaultValue;
+    }
+
+    /**
+     * @return {@code true} if reloading the file does not change this property.
+     */
+    public boolean isRequiresRestart() {
+        return requiresRestart;
+    }
+
+    /**
+     * Listen for changes when the file is reloaded, listeners run on the main server thread.
+     *
+     * @param listener given the old and new value
+     */
+    public void addListener(BiConsumer<T, T> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Parse and validate a file value.
+     *
+     * @param raw the value
+     * @return the value
+     * @throws IllegalArgumentException if it is not valid.
+     */
+    T parse(String raw) {
+        final T parsed = parser.apply(raw.trim());
+        if (parsed == null || !validator.test(parsed)) throw new IllegalArgumentException("Invalid value for " + name + ": " + raw);
+        return parsed;
+    }
+
+    /**
+     * Set the value.
+     *
+     * @param value the value
+     * @return the old value
+     */
+    T set(T value) {
+        final T old = this.value;
+        this.value = value;
+        return old;
+    }
+
+    /**
+     * Notify listeners of a change.
+     *
+     * @param old   the old value
+     * @param value the new value
+     */
+    void notifyListeners(T old, T value) {
+        if (Objects.equals(old, value)) return;
+        for (BiConsumer<T, T> listener : listeners) listener.accept(old, value);
+    }
+
+    @Override
+    public String toString() {
+        return name + "=" + value;
+    }
+
+}
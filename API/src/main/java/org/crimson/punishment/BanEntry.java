@@ -0,0 +1,23 @@
+package org.crimson.punishment;
+
+import java.util.Date;
+
+/**
+ * A single ban.
+ *
+ * @param target     the banned player name or IP address.
+ * @param reason     the reason, may be {@code null}.
+ * @param created    when the ban was created.
+ * @param expiration when the ban expires, {@code null} if it never does.
+ */
+public record BanEntry(String target, String reason, Date created, Date expiration) {
+
+    /**
+     * @param now the current time
+     * @return {@code true} if this ban has expired.
+     */
+    public boolean isExpired(long now) {
+        return expiration != null && expiration.getTime() <= now;
+    }
+
+}
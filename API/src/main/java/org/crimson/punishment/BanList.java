@@ -1,6 +1,8 @@
 package org.crimson.punishment;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.function.Consumer;
 
 /**
  * Represents a ban list of players.
@@ -14,7 +16,7 @@ public interface BanList {
      * @param playerName the player name
      * @param ipAddress  the ip address
      * @param reason     the reason
-     * @param expiration when the ban expires.
+     * @param expiration when the ban expires, {@code null} if it never does.
      */
     void addBan(String playerName, String ipAddress, String reason, Date expiration);
 
@@ -26,4 +28,24 @@ public interface BanList {
      */
     boolean isBanned(String addressOrPlayerName);
 
+    /**
+     * Remove a ban from this list.
+     *
+     * @param addressOrPlayerName the IP address, range or player name.
+     * @return {@code true} if a ban was removed.
+     */
+    boolean removeBan(String addressOrPlayerName);
+
+    /**
+     * @return every ban within this list.
+     */
+    Collection<BanEntry> getBans();
+
+    /**
+     * Listen for bans expiring, listeners are invoked on the main server thread.
+     *
+     * @param listener the listener
+     */
+    void addExpiryListener(Consumer<BanEntry> listener);
+
 }
@@ -0,0 +1,67 @@
+package org.crimson.scheduler;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs blocking work, such as file or database I/O, away from the main server thread and the network threads.
+ * <p>
+ * Every task gets its own virtual thread, so blocking is cheap. To continue on the main thread afterwards,
+ * use the {@link #sync()} executor, for example {@code future.thenAcceptAsync(result -> ..., async.sync())}.
+ */
+public interface AsyncExecutor extends Executor {
+
+    /**
+     * Run blocking work.
+     *
+     * @param task the task
+     * @return a future completed once the task has run, cancelling it interrupts the task.
+     */
+    CompletableFuture<Void> run(BlockingTask task);
+
+    /**
+     * Compute a value with blocking work.
+     *
+     * @param task the task
+     * @param <T>  the type
+     * @return a future completed with the value, cancelling it interrupts the task.
+     */
+    <T> CompletableFuture<T> supply(Callable<T> task);
+
+    /**
+     * Fan out several tasks and join their results.
+     * <p>
+     * If any task fails the returned future fails with that error and every other task is cancelled.
+     * Cancelling the returned future cancels every task.
+     *
+     * @param tasks the tasks
+     * @param <T>   the type
+     * @return a future completed with every result, in the order of {@code tasks}.
+     */
+    <T> CompletableFuture<List<T>> all(Collection<? extends Callable<T>> tasks);
+
+    /**
+     * @return an executor that runs tasks on the main server thread, it throws a
+     * {@link java.util.concurrent.RejectedExecutionException} if too many tasks are queued.
+     */
+    Executor sync();
+
+    /**
+     * A task that may block and throw.
+     */
+    @FunctionalInterface
+    interface BlockingTask {
+
+        /**
+         * Run
+         *
+         * @throws Exception any error
+         */
+        void run() throws Exception;
+
+    }
+
+}
@@ -0,0 +1,17 @@
+package org.crimson.scheduler;
+
+import java.util.concurrent.Future;
+
+/**
+ * Represents a task scheduled to run on the main server thread.
+ * <p>
+ * Cancel the task with {@link #cancel(boolean)}, a repeating task only completes once cancelled.
+ */
+public interface ServerTask extends Future<Void> {
+
+    /**
+     * @return {@code true} if this task runs repeatedly until cancelled.
+     */
+    boolean isRepeating();
+
+}
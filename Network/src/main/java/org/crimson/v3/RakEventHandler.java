@@ -1,7 +1,12 @@
 package org.crimson.v3;
 
+import org.crimson.v3.netty.RakChannel;
+import org.crimson.v3.netty.RakMemoryBudget;
 import org.crimson.v3.utility.BedrockServerPing;
 
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
 /**
  * Handle RakNet events.
  */
@@ -14,4 +19,84 @@ public interface RakEventHandler {
      */
     BedrockServerPing onPing();
 
+    /**
+     * Invoked before any connection state is created for an address.
+     *
+     * @param address the address
+     * @return {@code true} if the address is banned and should be refused.
+     */
+    default boolean isAddressBanned(InetAddress address) {
+        return false;
+    }
+
+    /**
+     * Invoked before a handshake goes ahead, refused clients are told there are no free incoming connections.
+     *
+     * @param sessions          amount of open sessions
+     * @param pendingHandshakes amount of handshakes between the first and second request, forgotten after 30 seconds
+     * @return {@code true} to admit the client.
+     */
+    default boolean canAdmit(int sessions, int pendingHandshakes) {
+        return true;
+    }
+
+    /**
+     * Invoked on a network thread once a session is created for an address.
+     *
+     * @param address the address
+     */
+    default void onSessionOpened(InetSocketAddress address) {
+
+    }
+
+    /**
+     * Invoked once as the server starts, every session reserves the buffers it retains from this budget.
+     * Its limits are set to {@link #getSessionMemoryLimit()} and {@link #getMemoryLimit()}.
+     *
+     * @return the budget, keep it to report what is retained before any session exists.
+     */
+    default RakMemoryBudget getMemoryBudget() {
+        return new RakMemoryBudget();
+    }
+
+    /**
+     * Consulted whenever a session retains another buffer.
+     *
+     * @return the bytes of network buffers a single session may retain.
+     */
+    default long getSessionMemoryLimit() {
+        return RakMemoryBudget.DEFAULT_SESSION_LIMIT;
+    }
+
+    /**
+     * Consulted whenever a session retains another buffer.
+     *
+     * @return the bytes of network buffers every session together may retain.
+     */
+    default long getMemoryLimit() {
+        return RakMemoryBudget.DEFAULT_LIMIT;
+    }
+
+    /**
+     * Invoked on a network thread once a session is created, before any of its game messages are handed off.
+     * <p>
+     * The session should be passed to the main thread, which drains its game messages each tick
+     * and releases whatever is left once the session is closed.
+     *
+     * @param session the session
+     * @return {@code true} if its game messages are drained, otherwise they are never handed off.
+     */
+    default boolean onSessionCreated(RakChannel session) {
+        return false;
+    }
+
+    /**
+     * Invoked on a network thread once a session closes.
+     *
+     * @param address the address
+     */
+    default void onSessionClosed(InetSocketAddress address) {
+
+    }
+
 }
@@ -0,0 +1,28 @@
+package org.crimson.v3.capture;
+
+/**
+ * The binary capture file format.
+ * <p>
+ * Header: magic (int), version (short), capture start in epoch milliseconds (long).
+ * <p>
+ * Each record: nanoseconds since the capture started (varlong), address type (4 or 6),
+ * address bytes, port (short), payload length (varint), payload.
+ */
+public interface RakCaptureFormat {
+
+    /**
+     * "CRCP"
+     */
+    int MAGIC = 0x43524350;
+
+    /**
+     * The current format version.
+     */
+    short VERSION = 1;
+
+    /**
+     * The largest payload that will be captured, anything bigger is truncated.
+     */
+    int MAXIMUM_PAYLOAD = 65535;
+
+}
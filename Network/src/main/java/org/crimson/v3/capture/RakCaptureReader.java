@@ -0,0 +1,106 @@
+package org.crimson.v3.capture;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads records from a capture file written by {@link RakCaptureWriter}.
+ */
+public final class RakCaptureReader implements AutoCloseable {
+
+    /**
+     * Input stream.
+     */
+    private final DataInputStream input;
+
+    /**
+     * When the capture started, in epoch milliseconds.
+     */
+    private final long started;
+
+    /**
+     * Open a capture file.
+     *
+     * @param file the file
+     * @throws IOException if the file could not be read or is not a capture.
+     */
+    public RakCaptureReader(Path file) throws IOException {
+        input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+
+        if (input.readInt() != RakCaptureFormat.MAGIC) {
+            input.close();
+            throw new IOException(file + " is not a capture file.");
+        }
+
+        final short version = input.readShort();
+        if (version != RakCaptureFormat.VERSION) {
+            input.close();
+            throw new IOException("Unsupported capture version " + version);
+        }
+
+        started = input.readLong();
+    }
+
+    /**
+     * @return when the capture started, in epoch milliseconds.
+     */
+    public long getStarted() {
+        return started;
+    }
+
+    /**
+     * Read the next record.
+     *
+     * @return the record or {@code null} if there are no more.
+     * @throws IOException if the file is corrupt.
+     */
+    public RakCaptureRecord next() throws IOException {
+        final int first = input.read();
+        if (first == -1) return null;
+        final long time = readVarLong(first);
+
+        final int type = input.readUnsignedByte();
+        if (type != 4 && type != 6) throw new IOException("Unknown address type " + type);
+
+        final byte[] address = new byte[type == 4 ? 4 : 16];
+        input.readFully(address);
+        final int port = input.readUnsignedShort();
+
+        final int length = (int) readVarLong(input.readUnsignedByte());
+        if (length > RakCaptureFormat.MAXIMUM_PAYLOAD) throw new IOException("Payload too large " + length);
+
+        final byte[] payload = new byte[length];
+        input.readFully(payload);
+        return new RakCaptureRecord(time, new InetSocketAddress(InetAddress.getByAddress(address), port), payload);
+    }
+
+    /**
+     * Read an unsigned variable length long.
+     *
+     * @param first the first byte, already read.
+     * @return the value
+     * @throws IOException if reading failed
+     */
+    private long readVarLong(int first) throws IOException {
+        long value = first & 0x7F;
+        int b = first;
+        for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+            if (shift >= 64) throw new IOException("Malformed varlong.");
+
+            b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+        }
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+}
@@ -0,0 +1,13 @@
+package org.crimson.v3.capture;
+
+import java.net.InetSocketAddress;
+
+/**
+ * A single captured inbound datagram.
+ *
+ * @param time    nanoseconds since the capture started
+ * @param sender  who sent the datagram
+ * @param payload the datagram contents
+ */
+public record RakCaptureRecord(long time, InetSocketAddress sender, byte[] payload) {
+}
@@ -0,0 +1,198 @@
+package org.crimson.v3.capture;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+import lombok.extern.log4j.Log4j2;
+import org.crimson.v3.RakNetServer;
+import org.crimson.v3.netty.impl.RakNetServerChannel;
+import org.crimson.v3.netty.pipeline.codec.RakDatagramDecoder;
+import org.crimson.v3.netty.pipeline.codec.RakMessageDecoder;
+import org.crimson.v3.netty.pipeline.offline.RakOfflineHandler;
+import org.crimson.v3.raknet.handler.RakInitialOnlineHandler;
+import org.crimson.v3.utility.BedrockServerPing;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a capture through the real server pipeline without a socket.
+ * <p>
+ * An {@link EmbeddedChannel} stands in for the bound datagram socket, the {@link RakNetServerChannel}
+ * and every session are registered on its event loop so the whole replay runs on the calling thread
+ * and is deterministic. Anything the server writes back is discarded.
+ */
+@Log4j2
+public final class RakCaptureReplay {
+
+    /**
+     * The result of a replay.
+     *
+     * @param datagrams the amount of datagrams replayed
+     * @param bytes     the amount of bytes replayed
+     * @param errors    datagrams the pipeline threw an exception for
+     * @param elapsed   how long the replay took, in nanoseconds.
+     */
+    public record Result(long datagrams, long bytes, long errors, long elapsed) {
+
+        /**
+         * @return datagrams per second.
+         */
+        public double datagramsPerSecond() {
+            return elapsed == 0 ? 0.0 : datagrams * 1e9 / elapsed;
+        }
+
+        /**
+         * @return megabytes per second.
+         */
+        public double megabytesPerSecond() {
+            return elapsed == 0 ? 0.0 : bytes * 1e9 / elapsed / (1024.0 * 1024.0);
+        }
+    }
+
+    /**
+     * The server, used by the offline handler for replies.
+     */
+    private final RakNetServer server;
+
+    /**
+     * Initializes each session pipeline.
+     */
+    private final ChannelInitializer<Channel> sessionInitializer;
+
+    /**
+     * Replay using the default session pipeline.
+     *
+     * @param server the server
+     */
+    public RakCaptureReplay(RakNetServer server) {
+        this(server, new ChannelInitializer<>() {
+            @Override
+            protected void initChannel(Channel channel) {
+                channel.pipeline().addLast(RakDatagramDecoder.INSTANCE);
+                channel.pipeline().addLast(RakMessageDecoder.INSTANCE);
+                channel.pipeline().addLast(RakInitialOnlineHandler.INSTANCE);
+            }
+        });
+    }
+
+    /**
+     * Replay using a custom session pipeline.
+     *
+     * @param server             the server
+     * @param sessionInitializer the session initializer
+     */
+    public RakCaptureReplay(RakNetServer server, ChannelInitializer<Channel> sessionInitializer) {
+        this.server = server;
+        this.sessionInitializer = sessionInitializer;
+    }
+
+    /**
+     * Replay a capture.
+     *
+     * @param file     the capture
+     * @param realTime {@code true} to keep the recorded timing, otherwise as fast as possible.
+     * @return the result
+     * @throws Exception if the capture could not be read.
+     */
+    public Result replay(Path file, boolean realTime) throws Exception {
+        final EmbeddedChannel socket = new EmbeddedChannel();
+        final RakNetServerChannel serverChannel = new RakNetServerChannel();
+
+        final RakOfflineHandler offlineHandler = new RakOfflineHandler(server);
+        offlineHandler.setRakNetServerChannel(serverChannel);
+        serverChannel.setOfflineHandler(offlineHandler);
+
+        // register new sessions on the same loop, like a server bootstrap would.
+        serverChannel.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                final Channel session = (Channel) msg;
+                session.pipeline().addLast(sessionInitializer);
+                socket.eventLoop().register(session);
+            }
+        });
+
+        socket.eventLoop().register(serverChannel).sync();
+        serverChannel.attach(socket);
+
+        final InetSocketAddress local = server.getBindTo();
+        long datagrams = 0, bytes = 0, errors = 0;
+
+        try (RakCaptureReader reader = new RakCaptureReader(file)) {
+            final long start = System.nanoTime();
+
+            RakCaptureRecord record;
+            while ((record = reader.next()) != null) {
+                if (realTime) waitUntil(start + record.time());
+
+                try {
+                    socket.writeInbound(new DatagramPacket(Unpooled.wrappedBuffer(record.payload()), local, record.sender()));
+                    socket.runPendingTasks();
+                } catch (Exception any) {
+                    if (errors++ < 10) log.warn("Pipeline failed on datagram {} from {}", datagrams, record.sender(), any);
+                }
+
+                socket.releaseOutbound();
+                socket.releaseInbound();
+                datagrams++;
+                bytes += record.payload().length;
+            }
+
+            return new Result(datagrams, bytes, errors, System.nanoTime() - start);
+        } finally {
+            serverChannel.close();
+            socket.finishAndReleaseAll();
+        }
+    }
+
+    /**
+     * Park until the deadline has passed.
+     *
+     * @param deadline the deadline, relative to {@link System#nanoTime()}
+     */
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /**
+     * Replay a capture from the command line.
+     * <p>
+     * Usage: {@code RakCaptureReplay <file> [--real-time]}
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            log.error("Usage: RakCaptureReplay <file> [--real-time]");
+            return;
+        }
+
+        final BedrockServerPing ping = new BedrockServerPing()
+                .edition("MCPE")
+                .motd("Replay")
+                .subMotd("Replay")
+                .gameMode("Survival")
+                .gameModeNumber(1)
+                .portV4(19132)
+                .portV6(19133);
+        ping.refresh();
+
+        final RakNetServer server = new RakNetServer(new InetSocketAddress("127.0.0.1", 19132), () -> ping);
+        final boolean realTime = args.length > 1 && args[1].equals("--real-time");
+
+        final Result result = new RakCaptureReplay(server).replay(Path.of(args[0]), realTime);
+        log.info("Replayed {} datagrams ({} bytes) in {} ms, {} errors.",
+                result.datagrams(), result.bytes(), TimeUnit.NANOSECONDS.toMillis(result.elapsed()), result.errors());
+        log.info("{} datagrams/s, {} MB/s",
+                String.format("%.0f", result.datagramsPerSecond()), String.format("%.2f", result.megabytesPerSecond()));
+    }
+
+}
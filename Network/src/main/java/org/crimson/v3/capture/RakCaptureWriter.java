@@ -0,0 +1,200 @@
+package org.crimson.v3.capture;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.socket.DatagramPacket;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records every inbound datagram into a capture file, then passes the datagram on untouched.
+ * <p>
+ * The event loop only copies the payload, the file is written by a separate thread.
+ * If the writer falls behind, records are dropped instead of blocking the event loop.
+ * The writer thread also closes the file, so closing never waits on the disk longer than {@link #CLOSE_TIMEOUT_MILLIS}.
+ */
+@Log4j2
+@ChannelHandler.Sharable
+public final class RakCaptureWriter extends ChannelInboundHandlerAdapter implements AutoCloseable {
+
+    /**
+     * How long closing waits for the writer to finish before leaving it to finish on its own.
+     */
+    public static final long CLOSE_TIMEOUT_MILLIS = 500;
+
+    /**
+     * Pending records.
+     */
+    private final BlockingQueue<RakCaptureRecord> pending = new ArrayBlockingQueue<>(65536);
+
+    /**
+     * Output stream.
+     */
+    private final DataOutputStream output;
+
+    /**
+     * The writer thread.
+     */
+    private final Thread thread;
+
+    /**
+     * When the capture started.
+     */
+    private final long start = System.nanoTime();
+
+    /**
+     * Records written and dropped.
+     */
+    private final LongAdder written = new LongAdder(), dropped = new LongAdder();
+
+    /**
+     * Running state
+     */
+    private volatile boolean running = true;
+
+    /**
+     * Create a new capture file.
+     *
+     * @param file the file
+     * @throws IOException if the file could not be created.
+     */
+    public RakCaptureWriter(Path file) throws IOException {
+        output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        output.writeInt(RakCaptureFormat.MAGIC);
+        output.writeShort(RakCaptureFormat.VERSION);
+        output.writeLong(System.currentTimeMillis());
+
+        thread = new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("Crimson Capture Thread")
+                .build()
+                .newThread(this::write);
+        thread.start();
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (running && msg instanceof DatagramPacket packet) {
+            final ByteBuf content = packet.content();
+            final byte[] payload = new byte[Math.min(content.readableBytes(), RakCaptureFormat.MAXIMUM_PAYLOAD)];
+            content.getBytes(content.readerIndex(), payload);
+
+            if (!pending.offer(new RakCaptureRecord(System.nanoTime() - start, packet.sender(), payload))) {
+                dropped.increment();
+            }
+        }
+
+        super.channelRead(ctx, msg);
+    }
+
+    /**
+     * Write records until closed, then close the file.
+     */
+    private void write() {
+        try {
+            while (running || !pending.isEmpty()) {
+                final RakCaptureRecord record = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (record == null) {
+                    output.flush();
+                    continue;
+                }
+
+                write(record);
+                written.increment();
+            }
+            output.flush();
+        } catch (IOException exception) {
+            log.error("Failed to write capture, stopping.", exception);
+            running = false;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                output.close();
+            } catch (IOException exception) {
+                log.warn("Failed to close capture file", exception);
+            }
+            log.info("Capture finished, {} datagrams written and {} dropped.", getWritten(), getDropped());
+        }
+    }
+
+    /**
+     * Write a single record.
+     *
+     * @param record the record
+     * @throws IOException if writing failed
+     */
+    private void write(RakCaptureRecord record) throws IOException {
+        writeVarLong(record.time());
+
+        final InetSocketAddress sender = record.sender();
+        final byte[] address = sender.getAddress().getAddress();
+        output.writeByte(sender.getAddress() instanceof Inet4Address ? 4 : 6);
+        output.write(address);
+        output.writeShort(sender.getPort());
+
+        writeVarLong(record.payload().length);
+        output.write(record.payload());
+    }
+
+    /**
+     * Write an unsigned variable length long.
+     *
+     * @param value the value
+     * @throws IOException if writing failed
+     */
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    /**
+     * @return the amount of records written.
+     */
+    public long getWritten() {
+        return written.sum();
+    }
+
+    /**
+     * @return the amount of records dropped because the writer fell behind.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Stop capturing, write everything that is pending and close the file.
+     * Waits at most {@link #CLOSE_TIMEOUT_MILLIS} so it can be called from an event loop,
+     * a writer still busy after that finishes in the background.
+     */
+    @Override
+    public void close() {
+        running = false;
+
+        try {
+            thread.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (thread.isAlive()) log.info("Capture writer still busy, finishing {} records in the background.", pending.size());
+    }
+
+}
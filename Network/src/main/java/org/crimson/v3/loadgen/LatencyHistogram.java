@@ -0,0 +1,116 @@
+package org.crimson.v3.loadgen;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A small log-linear histogram of latencies in microseconds.
+ * <p>
+ * Each power of two is split into 16 buckets, so any reported percentile is within ~6% of the real value.
+ * Recording is lock-free and can happen from any event loop.
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Sub-buckets per power of two.
+     */
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Enough buckets to hold any positive long.
+     */
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /**
+     * Bucket counts.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Total recorded values and the largest value.
+     */
+    private final AtomicLong count = new AtomicLong(), max = new AtomicLong();
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        final long micros = Math.max(0L, TimeUnit.NANOSECONDS.toMicros(nanos));
+        counts.incrementAndGet(index(micros));
+        count.incrementAndGet();
+        max.accumulateAndGet(micros, Math::max);
+    }
+
+    /**
+     * @return the amount of recorded values.
+     */
+    public long count() {
+        return count.get();
+    }
+
+    /**
+     * @return the largest recorded value in microseconds.
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Get a percentile.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the value in microseconds, or {@code 0} if nothing was recorded.
+     */
+    public long percentile(double percentile) {
+        final long total = count.get();
+        if (total == 0) return 0;
+
+        final long target = Math.max(1L, (long) Math.ceil(total * (percentile / 100.0)));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Format the common percentiles.
+     *
+     * @return p50, p90, p99 and max in milliseconds.
+     */
+    public String summary() {
+        return String.format("p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms",
+                percentile(50) / 1000.0, percentile(90) / 1000.0, percentile(99) / 1000.0, max() / 1000.0);
+    }
+
+    /**
+     * @param value the value
+     * @return the bucket for the value
+     */
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - SUB_BUCKET_BITS;
+        final int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @param index the bucket
+     * @return the largest value that falls within the bucket.
+     */
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+
+        final int shift = index / SUB_BUCKETS - 1;
+        final long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+}
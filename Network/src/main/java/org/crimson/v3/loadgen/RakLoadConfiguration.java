@@ -0,0 +1,87 @@
+package org.crimson.v3.loadgen;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Options for the {@link RakLoadGenerator}.
+ * <p>
+ * Every option is passed as {@code --name=value}, anything not given uses the default.
+ *
+ * @param target          the server to connect to
+ * @param clients         the amount of clients to connect
+ * @param connectRate     how many new clients start their handshake each second
+ * @param mtu             the MTU clients request
+ * @param rate            datagrams each connected client sends per second
+ * @param payload         the size of each steady state payload
+ * @param pingers         the amount of clients that only send unconnected pings
+ * @param pingRate        pings each pinger sends per second
+ * @param duration        total run time in seconds
+ * @param timeout         handshake timeout in milliseconds
+ * @param reportInterval  seconds between interval reports
+ * @param requireAccepted if the handshake only completes once the connection request was accepted,
+ *                        otherwise it completes after the second open connection reply.
+ * @param serverPid       the process ID of the server, {@code -1} if the server CPU should not be tracked.
+ */
+public record RakLoadConfiguration(InetSocketAddress target,
+                                   int clients,
+                                   int connectRate,
+                                   int mtu,
+                                   int rate,
+                                   int payload,
+                                   int pingers,
+                                   int pingRate,
+                                   int duration,
+                                   int timeout,
+                                   int reportInterval,
+                                   boolean requireAccepted,
+                                   long serverPid) {
+
+    /**
+     * Parse the configuration from program arguments.
+     *
+     * @param arguments the arguments
+     * @return the configuration
+     */
+    public static RakLoadConfiguration parse(String[] arguments) {
+        final Map<String, String> options = new HashMap<>();
+        for (String argument : arguments) {
+            if (!argument.startsWith("--") || !argument.contains("=")) {
+                throw new IllegalArgumentException("Invalid argument " + argument + ", expected --name=value");
+            }
+
+            final int split = argument.indexOf('=');
+            options.put(argument.substring(2, split), argument.substring(split + 1));
+        }
+
+        final String target = options.getOrDefault("target", "127.0.0.1:19132");
+        final int port = target.lastIndexOf(':');
+        return new RakLoadConfiguration(
+                new InetSocketAddress(target.substring(0, port), Integer.parseInt(target.substring(port + 1))),
+                integer(options, "clients", 1000),
+                integer(options, "connect-rate", 250),
+                integer(options, "mtu", 1400),
+                integer(options, "rate", 20),
+                integer(options, "payload", 64),
+                integer(options, "pingers", 0),
+                integer(options, "ping-rate", 1),
+                integer(options, "duration", 60),
+                integer(options, "timeout", 5000),
+                integer(options, "report-interval", 5),
+                Boolean.parseBoolean(options.getOrDefault("require-accepted", "true")),
+                Long.parseLong(options.getOrDefault("server-pid", "-1")));
+    }
+
+    /**
+     * @param options the options
+     * @param name    the name
+     * @param value   the default value
+     * @return the option as an integer.
+     */
+    private static int integer(Map<String, String> options, String name, int value) {
+        final String option = options.get(name);
+        return option == null ? value : Integer.parseInt(option);
+    }
+
+}
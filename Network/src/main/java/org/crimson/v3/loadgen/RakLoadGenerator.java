@@ -0,0 +1,214 @@
+package org.crimson.v3.loadgen;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
+import lombok.extern.log4j.Log4j2;
+import org.crimson.v3.utility.LocalNetwork;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A headless load generator that simulates many RakNet clients against a single server.
+ * <p>
+ * Each client gets its own UDP socket so the server sees a unique session per client.
+ * Clients are started at a fixed rate, go through the open connection and connection request handshake
+ * and then send steady state traffic until the run is over. Optionally, other clients only send unconnected pings.
+ * <p>
+ * Usage: {@code RakLoadGenerator --target=127.0.0.1:19132 --clients=5000 --connect-rate=500 --rate=20 --server-pid=1234}
+ * see {@link RakLoadConfiguration} for every option.
+ */
+@Log4j2
+public final class RakLoadGenerator {
+
+    /**
+     * How often new clients are started.
+     */
+    private static final long CONNECT_PERIOD_MS = 10;
+
+    private final RakLoadConfiguration configuration;
+    private final RakLoadStatistics statistics = new RakLoadStatistics();
+
+    /**
+     * The group every client runs on.
+     */
+    private final EventLoopGroup group = LocalNetwork.getDefaultGroup();
+
+    /**
+     * Every open client channel.
+     */
+    private final ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+
+    /**
+     * Total session seconds, used to work out server CPU per session.
+     */
+    private double sessionSeconds;
+
+    /**
+     * Clients started so far, only touched by the connect task.
+     */
+    private int started;
+
+    public RakLoadGenerator(RakLoadConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        new RakLoadGenerator(RakLoadConfiguration.parse(args)).run();
+    }
+
+    /**
+     * Run the load, blocks until the run is over.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void run() throws InterruptedException {
+        log.info("Starting load against {}: {}", configuration.target(), configuration);
+
+        final long start = System.nanoTime();
+        final long startCpu = serverCpuNanos();
+
+        for (int i = 0; i < configuration.pingers(); i++) startClient(true);
+        final ScheduledFuture<?> connect = group.next()
+                .scheduleAtFixedRate(() -> startClients(start), 0, CONNECT_PERIOD_MS, TimeUnit.MILLISECONDS);
+
+        final long end = start + TimeUnit.SECONDS.toNanos(configuration.duration());
+        long lastReport = start;
+        long lastCpu = startCpu;
+
+        while (System.nanoTime() < end) {
+            Thread.sleep(Math.min(TimeUnit.SECONDS.toMillis(configuration.reportInterval()),
+                    Math.max(1L, TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime()))));
+
+            final long now = System.nanoTime();
+            final long cpu = serverCpuNanos();
+            reportInterval(now - start, now - lastReport, cpu < 0 || lastCpu < 0 ? -1 : cpu - lastCpu);
+
+            lastReport = now;
+            lastCpu = cpu;
+        }
+
+        connect.cancel(false);
+        channels.close().awaitUninterruptibly();
+        group.shutdownGracefully().awaitUninterruptibly();
+
+        final long endCpu = serverCpuNanos();
+        reportFinal(System.nanoTime() - start, endCpu < 0 || startCpu < 0 ? -1 : endCpu - startCpu);
+    }
+
+    /**
+     * Start as many clients as the connect rate allows for the time elapsed.
+     *
+     * @param start when the run started
+     */
+    private void startClients(long start) {
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        final long due = Math.min(configuration.clients(), elapsed * configuration.connectRate() / 1000 + 1);
+
+        while (started < due) {
+            startClient(false);
+            started++;
+        }
+    }
+
+    /**
+     * Bind a new client socket.
+     *
+     * @param pinger if the client only sends pings.
+     */
+    private void startClient(boolean pinger) {
+        new Bootstrap()
+                .group(group)
+                .channel(LocalNetwork.getDefaultChannel())
+                .handler(new RakSimulatedClient(configuration, statistics, pinger))
+                .bind(0)
+                .addListener((ChannelFutureListener) future -> {
+                    if (future.isSuccess()) {
+                        channels.add(future.channel());
+                    } else {
+                        statistics.failure("bind failed: " + future.cause().getMessage());
+                    }
+                });
+    }
+
+    /**
+     * Log progress for the last interval.
+     *
+     * @param elapsed  time since the start
+     * @param interval time since the last report
+     * @param cpu      server CPU time used within the interval, negative if unknown.
+     */
+    private void reportInterval(long elapsed, long interval, long cpu) {
+        final long connected = statistics.connected.sum();
+        final double seconds = interval / 1e9;
+        sessionSeconds += connected * seconds;
+
+        final LatencyHistogram handshakes = statistics.intervalHandshakeLatency.getAndSet(new LatencyHistogram());
+        log.info("[{}s] sessions={} attempted={} completed={} failed={} | handshakes={} {} | ping {} | sent={}/s",
+                TimeUnit.NANOSECONDS.toSeconds(elapsed),
+                connected,
+                statistics.attempted.sum(),
+                statistics.completed.sum(),
+                statistics.failed.sum(),
+                handshakes.count(),
+                handshakes.summary(),
+                statistics.pingLatency.summary(),
+                statistics.datagramsSent.sumThenReset() / Math.max(1L, Math.round(seconds)));
+
+        if (cpu >= 0) {
+            log.info("[{}s] server cpu {}% of one core, {} us per session-second",
+                    TimeUnit.NANOSECONDS.toSeconds(elapsed),
+                    String.format("%.1f", cpu * 100.0 / interval),
+                    connected == 0 ? "-" : String.format("%.1f", cpu / 1000.0 / (connected * seconds)));
+        }
+    }
+
+    /**
+     * Log the final report.
+     *
+     * @param elapsed total run time
+     * @param cpu     server CPU time used within the run, negative if unknown.
+     */
+    private void reportFinal(long elapsed, long cpu) {
+        log.info("Load finished after {}s", TimeUnit.NANOSECONDS.toSeconds(elapsed));
+        log.info("Handshakes: attempted={} completed={} failed={} success={}%",
+                statistics.attempted.sum(),
+                statistics.completed.sum(),
+                statistics.failed.sum(),
+                String.format("%.2f", statistics.successRate()));
+        log.info("Open connection latency: {}", statistics.openLatency.summary());
+        log.info("Handshake latency: {}", statistics.handshakeLatency.summary());
+
+        if (configuration.pingers() > 0) {
+            log.info("Pings: sent={} received={} rtt {}",
+                    statistics.pingsSent.sum(), statistics.pongsReceived.sum(), statistics.pingLatency.summary());
+        }
+
+        statistics.failures.forEach((reason, count) -> log.info("Failure: {} x{}", reason, count.sum()));
+
+        if (cpu >= 0) {
+            log.info("Server cpu: {}ms total, {}% of one core, {} us per session-second",
+                    TimeUnit.NANOSECONDS.toMillis(cpu),
+                    String.format("%.1f", cpu * 100.0 / elapsed),
+                    sessionSeconds == 0 ? "-" : String.format("%.1f", cpu / 1000.0 / sessionSeconds));
+        }
+    }
+
+    /**
+     * @return total CPU time used by the server process, or {@code -1} if unknown.
+     */
+    private long serverCpuNanos() {
+        if (configuration.serverPid() < 0) return -1;
+
+        return ProcessHandle.of(configuration.serverPid())
+                .flatMap(handle -> handle.info().totalCpuDuration())
+                .map(Duration::toNanos)
+                .orElse(-1L);
+    }
+
+}
@@ -0,0 +1,93 @@
+package org.crimson.v3.loadgen;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters shared by every simulated client.
+ */
+public final class RakLoadStatistics {
+
+    /**
+     * Handshakes that were started, completed or failed.
+     */
+    final LongAdder attempted = new LongAdder(), completed = new LongAdder(), failed = new LongAdder();
+
+    /**
+     * Sessions that are currently connected.
+     */
+    final LongAdder connected = new LongAdder();
+
+    /**
+     * Steady state traffic.
+     */
+    final LongAdder datagramsSent = new LongAdder(), bytesSent = new LongAdder();
+
+    /**
+     * Unconnected pings.
+     */
+    final LongAdder pingsSent = new LongAdder(), pongsReceived = new LongAdder();
+
+    /**
+     * Failure reasons and how often they happened.
+     */
+    final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+    /**
+     * Latency from the first open connection request to the second reply.
+     */
+    final LatencyHistogram openLatency = new LatencyHistogram();
+
+    /**
+     * Latency of the whole handshake, for the whole run and for the current interval.
+     */
+    final LatencyHistogram handshakeLatency = new LatencyHistogram();
+    final AtomicReference<LatencyHistogram> intervalHandshakeLatency = new AtomicReference<>(new LatencyHistogram());
+
+    /**
+     * Unconnected ping round trip times.
+     */
+    final LatencyHistogram pingLatency = new LatencyHistogram();
+
+    /**
+     * Record a completed handshake.
+     *
+     * @param nanos the handshake time
+     */
+    void handshakeCompleted(long nanos) {
+        completed.increment();
+        connected.increment();
+        handshakeLatency.record(nanos);
+        intervalHandshakeLatency.get().record(nanos);
+    }
+
+    /**
+     * Record a failed handshake.
+     *
+     * @param reason the reason
+     */
+    void handshakeFailed(String reason) {
+        failed.increment();
+        failure(reason);
+    }
+
+    /**
+     * Count a failure.
+     *
+     * @param reason the reason
+     */
+    void failure(String reason) {
+        failures.computeIfAbsent(reason, ignored -> new LongAdder()).increment();
+    }
+
+    /**
+     * @return the percentage of finished handshakes that completed.
+     */
+    double successRate() {
+        final long done = completed.sum() + failed.sum();
+        return done == 0 ? 0.0 : completed.sum() * 100.0 / done;
+    }
+
+}
@@ -0,0 +1,337 @@
+package org.crimson.v3.loadgen;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.concurrent.ScheduledFuture;
+import lombok.extern.log4j.Log4j2;
+import org.crimson.v3.raknet.RakNetProtocol;
+import org.crimson.v3.raknet.reliability.RakNetReliability;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single simulated client with its own UDP socket.
+ * <p>
+ * All state is confined to the event loop of the channel, handlers and scheduled tasks never race.
+ */
+@Log4j2
+final class RakSimulatedClient extends SimpleChannelInboundHandler<DatagramPacket> {
+
+    /**
+     * The packet ID used for steady state traffic.
+     */
+    private static final int GAME_PACKET = 0xfe;
+
+    /**
+     * Handshake states.
+     */
+    private enum State {
+        OPENING_1, OPENING_2, CONNECTING, CONNECTED, FAILED
+    }
+
+    private final RakLoadConfiguration configuration;
+    private final RakLoadStatistics statistics;
+
+    /**
+     * If this client only sends unconnected pings.
+     */
+    private final boolean pinger;
+
+    /**
+     * The client GUID.
+     */
+    private final long guid = ThreadLocalRandom.current().nextLong();
+
+    private ChannelHandlerContext context;
+    private State state = State.OPENING_1;
+
+    /**
+     * When the handshake started.
+     */
+    private long handshakeStart;
+
+    /**
+     * Outgoing datagram sequence and reliable message index.
+     */
+    private int sequence, reliableIndex;
+
+    /**
+     * Pending timeout and repeating traffic.
+     */
+    private ScheduledFuture<?> timeout, traffic;
+
+    RakSimulatedClient(RakLoadConfiguration configuration, RakLoadStatistics statistics, boolean pinger) {
+        this.configuration = configuration;
+        this.statistics = statistics;
+        this.pinger = pinger;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        this.context = ctx;
+
+        if (pinger) {
+            final long period = TimeUnit.SECONDS.toNanos(1) / Math.max(1, configuration.pingRate());
+            traffic = ctx.executor().scheduleAtFixedRate(this::sendPing, ThreadLocalRandom.current().nextLong(period), period, TimeUnit.NANOSECONDS);
+        } else {
+            statistics.attempted.increment();
+            handshakeStart = System.nanoTime();
+            timeout = ctx.executor().schedule(this::onTimeout, configuration.timeout(), TimeUnit.MILLISECONDS);
+            sendOpenConnectionRequest1();
+        }
+
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (traffic != null) traffic.cancel(false);
+        if (timeout != null) timeout.cancel(false);
+        if (state == State.CONNECTED) statistics.connected.decrement();
+
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket msg) {
+        final ByteBuf content = msg.content();
+        if (!content.isReadable()) return;
+
+        final byte id = content.readByte();
+        if (RakNetProtocol.isRakNet(id)) {
+            if ((id & (RakNetProtocol.ACK | RakNetProtocol.NACK)) == 0) onDatagram(content);
+            return;
+        }
+
+        switch (id) {
+            case RakNetProtocol.UNCONNECTED_PONG -> onPong(content);
+            case RakNetProtocol.OPEN_CONNECTION_REPLY_1 -> onOpenConnectionReply1(content);
+            case RakNetProtocol.OPEN_CONNECTION_REPLY_2 -> onOpenConnectionReply2();
+            case RakNetProtocol.INCOMPATIBLE_PROTOCOL -> fail("incompatible protocol");
+            case RakNetProtocol.CONNECTION_BANNED -> fail("banned");
+            case RakNetProtocol.ALREADY_CONNECTED -> fail("already connected");
+            case RakNetProtocol.NO_FREE_INCOMING_CONNECTIONS -> fail("no free incoming connections");
+            case RakNetProtocol.DISCONNECTED -> onDisconnected();
+        }
+    }
+
+    /**
+     * Send the first request, padded out to the MTU we want.
+     */
+    private void sendOpenConnectionRequest1() {
+        final int size = configuration.mtu() - 20 - RakNetProtocol.UDP_HEADER_SIZE;
+        final ByteBuf buffer = context.alloc().ioBuffer(size);
+        buffer.writeByte(RakNetProtocol.OPEN_CONNECTION_REQUEST_1);
+        buffer.writeBytes(RakNetProtocol.MAGIC);
+        buffer.writeByte(RakNetProtocol.PROTOCOL_VERSION);
+        buffer.writeZero(Math.max(0, size - buffer.writerIndex()));
+
+        write(buffer);
+    }
+
+    /**
+     * Handle the first reply and send the second request.
+     *
+     * @param content the content
+     */
+    private void onOpenConnectionReply1(ByteBuf content) {
+        if (state != State.OPENING_1 || !content.isReadable(16) || !RakNetProtocol.isMagic(content)) return;
+        content.readLong(); // server guid
+        content.readBoolean(); // security
+        final int mtu = content.readUnsignedShort();
+
+        state = State.OPENING_2;
+
+        final ByteBuf buffer = context.alloc().ioBuffer(34);
+        buffer.writeByte(RakNetProtocol.OPEN_CONNECTION_REQUEST_2);
+        buffer.writeBytes(RakNetProtocol.MAGIC);
+        RakNetProtocol.writeAddress(configuration.target(), buffer);
+        buffer.writeShort(mtu);
+        buffer.writeLong(guid);
+
+        write(buffer);
+    }
+
+    /**
+     * Handle the second reply and send the connection request.
+     */
+    private void onOpenConnectionReply2() {
+        if (state != State.OPENING_2) return;
+        statistics.openLatency.record(System.nanoTime() - handshakeStart);
+
+        state = State.CONNECTING;
+        if (!configuration.requireAccepted()) onConnected();
+
+        final ByteBuf buffer = context.alloc().ioBuffer(18);
+        buffer.writeByte(RakNetProtocol.CONNECTION_REQUEST);
+        buffer.writeLong(guid);
+        buffer.writeLong(System.currentTimeMillis());
+        buffer.writeBoolean(false);
+
+        writeFrame(buffer, RakNetReliability.RELIABLE);
+    }
+
+    /**
+     * Look for the connection request being accepted, or a disconnect, within an online datagram.
+     *
+     * @param content the datagram content after the flags.
+     */
+    private void onDatagram(ByteBuf content) {
+        if ((state != State.CONNECTING && state != State.CONNECTED) || !content.isReadable(3)) return;
+        content.skipBytes(3); // sequence
+
+        while (content.isReadable(3)) {
+            final byte flag = content.readByte();
+            final RakNetReliability reliability = RakNetReliability.of((flag & 0xff) >> 5);
+            final int length = (content.readUnsignedShort() + 7) >> 3;
+            if (reliability == null) return;
+
+            if (reliability.isReliable()) content.skipBytes(3);
+            if (reliability.isSequenced()) content.skipBytes(3);
+            if (reliability.isOrdered() || reliability.isSequenced()) content.skipBytes(4);
+            if ((flag & RakNetProtocol.SPLIT) != 0) content.skipBytes(10);
+            if (!content.isReadable(length)) return;
+
+            final int pid = content.getUnsignedByte(content.readerIndex());
+            content.skipBytes(length);
+            if (pid == RakNetProtocol.CONNECTION_REQUEST_ACCEPTED && state == State.CONNECTING) {
+                onConnected();
+                return;
+            } else if (pid == RakNetProtocol.DISCONNECTED) {
+                onDisconnected();
+                return;
+            }
+        }
+    }
+
+    /**
+     * The handshake is complete, start sending traffic.
+     */
+    private void onConnected() {
+        if (state == State.CONNECTED) return;
+        state = State.CONNECTED;
+
+        timeout.cancel(false);
+        statistics.handshakeCompleted(System.nanoTime() - handshakeStart);
+
+        if (configuration.rate() > 0) {
+            final long period = TimeUnit.SECONDS.toNanos(1) / configuration.rate();
+            traffic = context.executor().scheduleAtFixedRate(this::sendTraffic, ThreadLocalRandom.current().nextLong(period), period, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * The server disconnected us.
+     */
+    private void onDisconnected() {
+        if (state == State.CONNECTED) {
+            statistics.failure("disconnected by server");
+            context.close();
+        } else {
+            fail("disconnected during handshake");
+        }
+    }
+
+    /**
+     * Handshake did not finish in time.
+     */
+    private void onTimeout() {
+        switch (state) {
+            case OPENING_1 -> fail("timeout waiting for open connection reply 1");
+            case OPENING_2 -> fail("timeout waiting for open connection reply 2");
+            case CONNECTING -> fail("timeout waiting for connection request accepted");
+        }
+    }
+
+    /**
+     * Fail the handshake.
+     *
+     * @param reason the reason
+     */
+    private void fail(String reason) {
+        if (state == State.CONNECTED || state == State.FAILED) return;
+
+        state = State.FAILED;
+        statistics.handshakeFailed(reason);
+        context.close();
+    }
+
+    /**
+     * Send a single steady state game packet.
+     */
+    private void sendTraffic() {
+        final ByteBuf buffer = context.alloc().ioBuffer(configuration.payload());
+        buffer.writeByte(GAME_PACKET);
+        buffer.writeZero(Math.max(0, configuration.payload() - 1));
+
+        statistics.datagramsSent.increment();
+        statistics.bytesSent.add(buffer.readableBytes());
+        writeFrame(buffer, RakNetReliability.UNRELIABLE);
+    }
+
+    /**
+     * Send an unconnected ping, the send time is echoed back within the pong.
+     */
+    private void sendPing() {
+        final ByteBuf buffer = context.alloc().ioBuffer(33);
+        buffer.writeByte(RakNetProtocol.UNCONNECTED_PING);
+        buffer.writeLong(System.nanoTime());
+        buffer.writeBytes(RakNetProtocol.MAGIC);
+        buffer.writeLong(guid);
+
+        statistics.pingsSent.increment();
+        write(buffer);
+    }
+
+    /**
+     * Handle a pong.
+     *
+     * @param content the content
+     */
+    private void onPong(ByteBuf content) {
+        if (!content.isReadable(8)) return;
+
+        statistics.pingLatency.record(System.nanoTime() - content.readLong());
+        statistics.pongsReceived.increment();
+    }
+
+    /**
+     * Wrap a message within a single frame and datagram.
+     *
+     * @param message     the message, released by this method.
+     * @param reliability the reliability
+     */
+    private void writeFrame(ByteBuf message, RakNetReliability reliability) {
+        final ByteBuf buffer = context.alloc().ioBuffer(RakNetProtocol.DATAGRAM_HEADER_SIZE + 6 + message.readableBytes());
+        try {
+            buffer.writeByte(RakNetProtocol.VALID);
+            buffer.writeMediumLE(sequence++);
+            buffer.writeByte(reliability.ordinal() << 5);
+            buffer.writeShort(message.readableBytes() << 3);
+            if (reliability.isReliable()) buffer.writeMediumLE(reliableIndex++);
+            buffer.writeBytes(message);
+        } finally {
+            message.release();
+        }
+
+        write(buffer);
+    }
+
+    /**
+     * Write to the server.
+     *
+     * @param buffer the buffer
+     */
+    private void write(ByteBuf buffer) {
+        context.writeAndFlush(new DatagramPacket(buffer, configuration.target()));
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        log.debug("Simulated client caught an exception", cause);
+    }
+
+}
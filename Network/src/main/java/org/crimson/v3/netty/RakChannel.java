@@ -1,18 +1,58 @@
 package org.crimson.v3.netty;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.*;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.ReferenceCountUtil;
 import lombok.extern.log4j.Log4j2;
+import org.crimson.v3.raknet.RakNetProtocol;
+import org.crimson.v3.raknet.packet.RakFrameEncoder;
+import org.crimson.v3.raknet.packet.RakNetMessage;
+import org.crimson.v3.raknet.reliability.RakNetReliability;
+import org.crimson.v3.raknet.reliability.RakResendBuffer;
+import org.crimson.v3.utility.SpscArrayQueue;
 
+import java.lang.invoke.VarHandle;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Represents a RakNet UDP channel session.
+ * <p>
+ * The event loop of a session decodes, reassembles and orders its datagrams.
+ * Complete game messages are handed to the main server thread through {@link #drainInbound(Consumer, int)},
+ * and the main thread hands messages back with {@link #send(ByteBuf)}, so neither side waits on the other.
  */
 @Log4j2
 public abstract class RakChannel extends AbstractChannel {
 
+    /**
+     * Game messages that may wait for the main thread, or for the event loop.
+     */
+    private static final int INBOUND_QUEUE_CAPACITY = 1024, OUTBOUND_QUEUE_CAPACITY = 1024;
+
+    /**
+     * Bytes of unsent messages above which a session stops being writable, and below which it is writable again.
+     */
+    private static final WriteBufferWaterMark WATER_MARK = new WriteBufferWaterMark(64 * 1024, 256 * 1024);
+
+    /**
+     * Writability bit cleared while the shared socket can not take more datagrams.
+     */
+    private static final int SOCKET_WRITABILITY = 1;
+
+    /**
+     * Reliable datagrams not acknowledged within the timeout are sent again, checked once per period.
+     */
+    private static final long RESEND_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1), RESEND_CHECK_PERIOD_MILLIS = 100;
+
     /**
      * Channel config and meta.
      */
@@ -39,11 +79,77 @@ public abstract class RakChannel extends AbstractChannel {
      */
     private boolean reading;
 
+    /**
+     * Sequence number of the next outgoing datagram.
+     */
+    private final AtomicInteger datagramSequence = new AtomicInteger();
+
+    /**
+     * When a datagram was last received, from {@link System#nanoTime()}.
+     */
+    private volatile long lastReceived = System.nanoTime();
+
+    /**
+     * If the client finished the handshake.
+     */
+    private volatile boolean established;
+
+    /**
+     * The MTU agreed on during the handshake.
+     */
+    private volatile int mtu = RakNetProtocol.MINIMUM_MTU_SIZE;
+
+    /**
+     * Frames outgoing messages, only used on the event loop of this channel.
+     */
+    private final RakFrameEncoder frameEncoder = new RakFrameEncoder();
+
+    /**
+     * Game messages from the event loop to the main thread.
+     */
+    private final SpscArrayQueue<RakNetMessage> inbound = new SpscArrayQueue<>(INBOUND_QUEUE_CAPACITY);
+
+    /**
+     * Game messages from the main thread to the event loop.
+     */
+    private final SpscArrayQueue<ByteBuf> outbound = new SpscArrayQueue<>(OUTBOUND_QUEUE_CAPACITY);
+
+    /**
+     * If the event loop was already asked to write the outbound queue.
+     */
+    private final AtomicBoolean outboundScheduled = new AtomicBoolean();
+
+    /**
+     * Bytes of buffers this session retains, reserved from the server budget.
+     */
+    private final AtomicLong retainedBytes = new AtomicLong();
+
+    /**
+     * Datagrams with reliable frames until the client acknowledges them, only used on the event loop of this channel.
+     */
+    private final RakResendBuffer resendBuffer = new RakResendBuffer();
+
+    /**
+     * Sends datagrams again that were not acknowledged in time, while any are kept. Only used on the event loop.
+     */
+    private ScheduledFuture<?> resendCheck;
+
+    /**
+     * If the main thread drains game messages of this session, nothing is handed off otherwise.
+     */
+    private volatile boolean handOffEnabled;
+
+    /**
+     * Set once the main thread stops draining this session, whoever sees it releases what is still queued.
+     */
+    private volatile boolean inboundReleased;
+
     public RakChannel(RakServerChannel channel, InetSocketAddress address) {
         super(channel.mainChannel);
 
         this.serverChannel = channel;
         this.address = address;
+        channelConfig.setWriteBufferWaterMark(WATER_MARK);
     }
 
     @Override
@@ -56,6 +162,391 @@ public abstract class RakChannel extends AbstractChannel {
         };
     }
 
+    /**
+     * Record that a datagram was received, called on the receive path.
+     */
+    public void markReceived() {
+        lastReceived = System.nanoTime();
+    }
+
+    /**
+     * @return when a datagram was last received, from {@link System#nanoTime()}.
+     */
+    public long getLastReceived() {
+        return lastReceived;
+    }
+
+    /**
+     * Set the MTU agreed on during the handshake, every datagram to this session fits within it.
+     *
+     * @param mtu the mtu
+     */
+    public void setMtu(int mtu) {
+        this.mtu = RakNetProtocol.clampMtuSize(mtu);
+    }
+
+    /**
+     * @return the MTU agreed on during the handshake.
+     */
+    public int getMtu() {
+        return mtu;
+    }
+
+    /**
+     * @return the largest datagram payload that can be sent without IP fragmentation.
+     */
+    public int getMaximumDatagramSize() {
+        return mtu - RakNetProtocol.ipHeaderSize(address) - RakNetProtocol.UDP_HEADER_SIZE;
+    }
+
+    /**
+     * Mark the handshake as finished, the session is then given the longer idle timeout.
+     */
+    public void setEstablished() {
+        established = true;
+    }
+
+    /**
+     * @return {@code true} if the client finished the handshake.
+     */
+    public boolean isEstablished() {
+        return established;
+    }
+
+    /**
+     * Set if the main thread drains game messages of this session, decided once it is created.
+     *
+     * @param handOffEnabled {@code true} if they are drained.
+     */
+    public void setHandOffEnabled(boolean handOffEnabled) {
+        this.handOffEnabled = handOffEnabled;
+    }
+
+    /**
+     * @return {@code true} if game messages are handed to the main thread.
+     */
+    public boolean isHandOffEnabled() {
+        return handOffEnabled;
+    }
+
+    /**
+     * Reserve memory for a buffer this session keeps, such as a message waiting to be reassembled or ordered.
+     *
+     * @param bytes the bytes
+     * @return the result, nothing is reserved unless {@link RakMemoryBudget.Reservation#RESERVED}.
+     */
+    public RakMemoryBudget.Reservation reserveMemory(int bytes) {
+        return serverChannel.getMemoryBudget().reserve(retainedBytes, bytes);
+    }
+
+    /**
+     * Release memory reserved with {@link #reserveMemory(int)}.
+     *
+     * @param bytes the bytes
+     */
+    public void releaseMemory(int bytes) {
+        serverChannel.getMemoryBudget().release(retainedBytes, bytes);
+    }
+
+    /**
+     * @return bytes of buffers this session retains.
+     */
+    public long getRetainedBytes() {
+        return retainedBytes.get();
+    }
+
+    /**
+     * @return the budget of every session of the server.
+     */
+    public RakMemoryBudget getMemoryBudget() {
+        return serverChannel.getMemoryBudget();
+    }
+
+    /**
+     * Hand a complete game message to the main thread, only from the event loop of this channel.
+     * <p>
+     * If the session or the server retains too much, unreliable messages are dropped.
+     * Reliable ones can not be, so the session is closed instead, as it is when the main thread is too far behind.
+     * Nothing is queued unless {@link #isHandOffEnabled()}, since nothing would ever release it.
+     *
+     * @param message the message, owned by the queue once accepted.
+     * @return {@code false} if the message was not queued, it is then released.
+     */
+    public boolean handOff(RakNetMessage message) {
+        final int bytes = message.buffer().readableBytes();
+        if (!handOffEnabled || !isOpen() || inboundReleased) {
+            message.buffer().release();
+            return false;
+        }
+
+        final RakMemoryBudget.Reservation reservation = reserveMemory(bytes);
+        if (reservation != RakMemoryBudget.Reservation.RESERVED) {
+            message.buffer().release();
+            if (message.reliability().isReliable()) {
+                closeOverBudget(reservation == RakMemoryBudget.Reservation.SESSION_LIMIT
+                        ? "retains more memory than a session may" : "would run the server over its network memory limit");
+            } else {
+                serverChannel.getMemoryBudget().messageDropped();
+            }
+            return false;
+        }
+
+        if (!inbound.offer(message)) {
+            releaseMemory(bytes);
+            message.buffer().release();
+            closeOverBudget("sent more than the server could handle");
+            return false;
+        }
+
+        // the main thread may have stopped draining after the check above, then it may not have seen this message.
+        VarHandle.fullFence();
+        if (inboundReleased) releaseQueued();
+        return true;
+    }
+
+    /**
+     * Close this session because it would retain too much.
+     *
+     * @param reason the reason, for the log
+     */
+    private void closeOverBudget(String reason) {
+        if (!isOpen()) return;
+
+        log.warn("{} {}, disconnecting.", address, reason);
+        serverChannel.getMemoryBudget().sessionClosed();
+        close();
+    }
+
+    /**
+     * Take game messages handed off by the event loop, only from the main thread.
+     *
+     * @param consumer receives each message and must release its buffer.
+     * @param limit    the most messages to take
+     * @return the amount of messages taken.
+     */
+    public int drainInbound(Consumer<RakNetMessage> consumer, int limit) {
+        return inbound.drain(message -> {
+            releaseMemory(message.buffer().readableBytes());
+            consumer.accept(message);
+        }, limit);
+    }
+
+    /**
+     * Release every queued game message once the main thread stops draining this session, only from the main thread.
+     * <p>
+     * A message handed off meanwhile is released by the event loop instead, after it sees this.
+     * {@link #drainInbound(Consumer, int)} may not be called anymore.
+     */
+    public void releaseInbound() {
+        inboundReleased = true;
+        releaseQueued();
+    }
+
+    /**
+     * Release every queued game message. Once the main thread stopped draining, both threads may get here,
+     * the lock makes the holder the only consumer of the queue.
+     */
+    private void releaseQueued() {
+        synchronized (inbound) {
+            inbound.drain(message -> {
+                releaseMemory(message.buffer().readableBytes());
+                message.buffer().release();
+            }, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Send a game message from the main thread, it is written by the event loop of this channel.
+     * <p>
+     * Messages sent within the same tick are written and flushed together.
+     * Check {@link #isWritable()} first to hold back data the client can do without while it is congested.
+     *
+     * @param message the message, released by this channel.
+     * @return {@code false} if the session is closed, retains too much or the event loop is too far behind,
+     * the message is then released.
+     */
+    public boolean send(ByteBuf message) {
+        final int bytes = message.readableBytes();
+        if (!isOpen()) {
+            message.release();
+            return false;
+        }
+
+        if (reserveMemory(bytes) != RakMemoryBudget.Reservation.RESERVED) {
+            message.release();
+            serverChannel.getMemoryBudget().messageDropped();
+            return false;
+        }
+
+        if (!outbound.offer(message)) {
+            releaseMemory(bytes);
+            message.release();
+            return false;
+        }
+
+        scheduleOutbound();
+        return true;
+    }
+
+    /**
+     * Ask the event loop to write the outbound queue, unless it already was.
+     */
+    private void scheduleOutbound() {
+        if (outboundScheduled.compareAndSet(false, true)) eventLoop().execute(() -> writeOutbound(false));
+    }
+
+    /**
+     * Write everything still queued for this session regardless of its water mark, from any thread.
+     * <p>
+     * Used while the server closes, so messages sent before are not lost.
+     */
+    public void flushForClose() {
+        eventLoop().execute(() -> writeOutbound(true));
+    }
+
+    /**
+     * @return {@code true} if nothing sent to this session is left to write to the main channel, from any thread.
+     */
+    public boolean isFlushed() {
+        final ChannelOutboundBuffer buffer = unsafe().outboundBuffer();
+        return outbound.size() == 0 && (buffer == null || buffer.totalPendingWriteBytes() == 0);
+    }
+
+    /**
+     * Write messages of the outbound queue with a single flush, on the event loop.
+     * <p>
+     * Unless told to ignore it, stops once this session is not writable, the rest waits in the queue until it is.
+     * Closed sessions release them instead.
+     *
+     * @param ignoreWaterMark if everything should be written
+     */
+    private void writeOutbound(boolean ignoreWaterMark) {
+        // anything sent from now on schedules another write.
+        outboundScheduled.set(false);
+
+        final boolean active = isActive();
+        ByteBuf message;
+        while ((!active || ignoreWaterMark || isWritable()) && (message = outbound.poll()) != null) {
+            releaseMemory(message.readableBytes());
+            if (active) {
+                write(message, voidPromise());
+            } else {
+                message.release();
+            }
+        }
+        if (active) flush();
+    }
+
+    /**
+     * Follow the writability of the shared socket, from any thread.
+     * <p>
+     * While it can not take more datagrams this session is not writable either,
+     * and writing resumes once it can.
+     *
+     * @param writable if the shared socket is writable
+     */
+    void setSocketWritable(boolean writable) {
+        eventLoop().execute(() -> {
+            final ChannelOutboundBuffer buffer = unsafe().outboundBuffer();
+            // closed
+            if (buffer == null) return;
+
+            buffer.setUserDefinedWritability(SOCKET_WRITABILITY, writable);
+            if (!writable) return;
+
+            flush();
+            if (!outbound.isEmpty()) scheduleOutbound();
+        });
+    }
+
+    /**
+     * @return the sequence number for a new outgoing datagram, every datagram sent to this session must use one.
+     */
+    public int nextDatagramSequence() {
+        return datagramSequence.getAndIncrement() & 0xFFFFFF;
+    }
+
+    /**
+     * The client acknowledged datagrams, on the event loop.
+     *
+     * @param start the first sequence number
+     * @param end   the last sequence number, inclusive
+     */
+    public void acknowledged(int start, int end) {
+        releaseMemory(resendBuffer.acknowledge(start, end));
+    }
+
+    /**
+     * The client reported datagrams lost, those with reliable frames are sent again, on the event loop.
+     *
+     * @param start the first sequence number
+     * @param end   the last sequence number, inclusive
+     */
+    public void lost(int start, int end) {
+        final Channel parent = parent();
+        if (resendBuffer.resend(start, end, alloc(), this::nextDatagramSequence, System.nanoTime(),
+                datagram -> parent.write(new DatagramPacket(datagram, address))) > 0) {
+            parent.flush();
+        }
+    }
+
+    /**
+     * Write a datagram with reliable frames and keep it until the client acknowledges it.
+     *
+     * @param parent   the main channel
+     * @param datagram the datagram
+     */
+    private void writeReliable(Channel parent, ByteBuf datagram) {
+        if (reserveMemory(datagram.readableBytes()) == RakMemoryBudget.Reservation.RESERVED) {
+            resendBuffer.add(datagram, System.nanoTime());
+            if (resendCheck == null) {
+                resendCheck = eventLoop().scheduleAtFixedRate(this::checkResend, RESEND_CHECK_PERIOD_MILLIS,
+                        RESEND_CHECK_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        } else {
+            // not closed right away, this runs within a flush.
+            eventLoop().execute(() -> closeOverBudget("retains more unacknowledged datagrams than it may"));
+        }
+        parent.write(new DatagramPacket(datagram, address));
+    }
+
+    /**
+     * Send datagrams again that were not acknowledged in time, or release them once this session is closed.
+     */
+    private void checkResend() {
+        if (!isActive() || resendBuffer.isEmpty()) {
+            releaseMemory(resendBuffer.clear());
+            resendCheck.cancel(false);
+            resendCheck = null;
+            return;
+        }
+
+        final Channel parent = parent();
+        final long now = System.nanoTime();
+        if (resendBuffer.resendExpired(now - RESEND_TIMEOUT_NANOS, alloc(), this::nextDatagramSequence, now,
+                datagram -> parent.write(new DatagramPacket(datagram, address))) > 0) {
+            parent.flush();
+        }
+    }
+
+    /**
+     * Create a datagram telling the client it was disconnected.
+     * <p>
+     * The datagram is written to the main channel directly, so many can be flushed together.
+     *
+     * @param allocator the allocator
+     * @return the datagram
+     */
+    public DatagramPacket newDisconnectNotification(ByteBufAllocator allocator) {
+        final ByteBuf buffer = allocator.ioBuffer(RakNetProtocol.DATAGRAM_HEADER_SIZE + 4);
+        buffer.writeByte(RakNetProtocol.VALID);
+        buffer.writeMediumLE(nextDatagramSequence());
+        buffer.writeByte(RakNetReliability.UNRELIABLE.ordinal() << 5);
+        buffer.writeShort(1 << 3);
+        buffer.writeByte(RakNetProtocol.DISCONNECTED);
+        return new DatagramPacket(buffer, address);
+    }
+
     @Override
     protected boolean isCompatible(EventLoop loop) {
         return true;
@@ -86,9 +577,52 @@ public abstract class RakChannel extends AbstractChannel {
         // Ignored.
     }
 
+    /**
+     * Write outgoing messages to the main channel.
+     * <p>
+     * A {@link ByteBuf} is a message that is framed reliably and ordered, split if it does not fit within the MTU.
+     * Those datagrams are kept until the client acknowledges them, and sent again if it reports them lost
+     * or does not acknowledge them in time.
+     * Datagrams are written as they are, unless they do not fit: their content is then framed like a message
+     * instead of leaving it to IP fragmentation.
+     * <p>
+     * Nothing more is written once the main channel is not writable, the rest stays in {@code in} and counts
+     * towards the water mark of this session until the main channel is writable again.
+     *
+     * @param in the outbound buffer
+     */
     @Override
     protected void doWrite(ChannelOutboundBuffer in) {
-        parent().writeAndFlush(in.current());
+        final int maxDatagramSize = getMaximumDatagramSize();
+        final Channel parent = parent();
+
+        Object message;
+        while ((message = in.current()) != null && parent.isWritable()) {
+            if (message instanceof ByteBuf buffer) {
+                encode(parent, buffer, maxDatagramSize);
+            } else if (message instanceof DatagramPacket packet && packet.content().readableBytes() > maxDatagramSize) {
+                encode(parent, packet.content(), maxDatagramSize);
+            } else {
+                parent.write(ReferenceCountUtil.retain(message));
+            }
+            in.remove();
+        }
+        parent.flush();
+
+        // the queue stopped at the water mark, continue now there is room.
+        if (isWritable() && !outbound.isEmpty()) scheduleOutbound();
+    }
+
+    /**
+     * Frame a message reliably and ordered.
+     *
+     * @param parent          the main channel
+     * @param message         the message, not released by this method.
+     * @param maxDatagramSize largest datagram payload
+     */
+    private void encode(Channel parent, ByteBuf message, int maxDatagramSize) {
+        frameEncoder.encode(alloc(), message.retain(), RakNetReliability.RELIABLE_ORDERED, maxDatagramSize,
+                this::nextDatagramSequence, datagram -> writeReliable(parent, datagram));
     }
 
     @Override
@@ -0,0 +1,142 @@
+package org.crimson.v3.netty;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Accounts the bytes of network buffers retained by sessions, per session and for the whole server.
+ * <p>
+ * Every buffer a session keeps beyond the read that produced it is reserved here first,
+ * so one client can not run the server out of direct memory.
+ */
+public final class RakMemoryBudget {
+
+    /**
+     * Default limits, per session and for every session together.
+     */
+    public static final long DEFAULT_SESSION_LIMIT = 4L << 20, DEFAULT_LIMIT = 256L << 20;
+
+    /**
+     * Bytes reserved by every session together.
+     */
+    private final AtomicLong used = new AtomicLong();
+
+    /**
+     * Messages dropped and sessions closed because a limit was reached.
+     */
+    private final LongAdder droppedMessages = new LongAdder(), closedSessions = new LongAdder();
+
+    /**
+     * Give the current limits, consulted on each reservation so changes apply right away.
+     */
+    private volatile LongSupplier sessionLimit = () -> DEFAULT_SESSION_LIMIT, limit = () -> DEFAULT_LIMIT;
+
+    /**
+     * Set the limits.
+     *
+     * @param sessionLimit gives the bytes a single session may retain
+     * @param limit        gives the bytes every session together may retain
+     */
+    public void setLimits(LongSupplier sessionLimit, LongSupplier limit) {
+        this.sessionLimit = sessionLimit;
+        this.limit = limit;
+    }
+
+    /**
+     * Reserve bytes for a session.
+     *
+     * @param session the bytes reserved by the session
+     * @param bytes   the bytes
+     * @return the result, nothing is reserved unless {@link Reservation#RESERVED}.
+     */
+    Reservation reserve(AtomicLong session, int bytes) {
+        if (session.addAndGet(bytes) > sessionLimit.getAsLong()) {
+            session.addAndGet(-bytes);
+            return Reservation.SESSION_LIMIT;
+        }
+
+        if (used.addAndGet(bytes) > limit.getAsLong()) {
+            used.addAndGet(-bytes);
+            session.addAndGet(-bytes);
+            return Reservation.SERVER_LIMIT;
+        }
+        return Reservation.RESERVED;
+    }
+
+    /**
+     * Release bytes reserved for a session.
+     *
+     * @param session the bytes reserved by the session
+     * @param bytes   the bytes
+     */
+    void release(AtomicLong session, int bytes) {
+        session.addAndGet(-bytes);
+        used.addAndGet(-bytes);
+    }
+
+    /**
+     * Record a message dropped because a limit was reached.
+     */
+    void messageDropped() {
+        droppedMessages.increment();
+    }
+
+    /**
+     * Record a session closed because a limit was reached.
+     */
+    void sessionClosed() {
+        closedSessions.increment();
+    }
+
+    /**
+     * @return bytes retained by every session together.
+     */
+    public long getUsed() {
+        return used.get();
+    }
+
+    /**
+     * @return the bytes every session together may retain.
+     */
+    public long getLimit() {
+        return limit.getAsLong();
+    }
+
+    /**
+     * @return messages dropped because a limit was reached.
+     */
+    public long getDroppedMessages() {
+        return droppedMessages.sum();
+    }
+
+    /**
+     * @return sessions closed because a limit was reached.
+     */
+    public long getClosedSessions() {
+        return closedSessions.sum();
+    }
+
+    /**
+     * The result of a reservation.
+     */
+    public enum Reservation {
+
+        /**
+         * The bytes are reserved.
+         */
+        RESERVED,
+
+        /**
+         * The session would retain more than it may.
+         */
+        SESSION_LIMIT,
+
+        /**
+         * Every session together would retain more than they may.
+         */
+        SERVER_LIMIT
+
+    }
+
+}
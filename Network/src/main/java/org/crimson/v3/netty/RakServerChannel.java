@@ -2,14 +2,24 @@ package org.crimson.v3.netty;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
+import io.netty.util.concurrent.Promise;
 import lombok.extern.log4j.Log4j2;
+import org.crimson.v3.RakEventHandler;
+import org.crimson.v3.capture.RakCaptureWriter;
 import org.crimson.v3.netty.pipeline.offline.RakOfflineHandler;
 import org.crimson.v3.utility.LocalNetwork;
 
+import java.io.IOException;
 import java.net.SocketAddress;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents the main server channel.
@@ -20,6 +30,36 @@ import java.util.concurrent.atomic.AtomicBoolean;
 @Log4j2
 public abstract class RakServerChannel extends AbstractServerChannel {
 
+    /**
+     * How long closing may take to tell sessions and flush, before loops are stopped anyway.
+     */
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * Sessions told they were disconnected per flush.
+     */
+    private static final int DISCONNECT_BATCH_SIZE = 256;
+
+    /**
+     * How often closing checks whether sessions wrote what they had queued.
+     */
+    private static final long FLUSH_CHECK_PERIOD_MILLIS = 10;
+
+    /**
+     * How often idle sessions are looked for.
+     */
+    private static final long IDLE_CHECK_PERIOD_MILLIS = 1000;
+
+    /**
+     * Bytes of unsent datagrams above which the shared socket stops being writable, and below which it is writable again.
+     */
+    private static final WriteBufferWaterMark WATER_MARK = new WriteBufferWaterMark(1024 * 1024, 4 * 1024 * 1024);
+
+    /**
+     * Name of the capture handler within each bound channel.
+     */
+    private static final String CAPTURE_HANDLER = "capture";
+
     /**
      * Channel config.
      */
@@ -52,6 +92,42 @@ public abstract class RakServerChannel extends AbstractServerChannel {
      */
     private RakOfflineHandler offlineHandler;
 
+    /**
+     * Initializes the route and offline handlers for each bound channel.
+     */
+    private final ChannelInitializer<Channel> defaultRouteInitializer = new ChannelInitializer<>() {
+        @Override
+        protected void initChannel(Channel channel) {
+            channel.pipeline().addLast(new RakServerRouteHandler(RakServerChannel.this));
+            channel.pipeline().addLast(offlineHandler);
+        }
+    };
+
+    /**
+     * The current capture, if any.
+     */
+    private RakCaptureWriter capture;
+
+    /**
+     * Idle timeouts of sessions still handshaking and of established sessions, in nanoseconds.
+     */
+    private volatile long handshakeTimeout = TimeUnit.SECONDS.toNanos(10), sessionTimeout = TimeUnit.SECONDS.toNanos(30);
+
+    /**
+     * Sessions evicted for being idle while handshaking, or once established.
+     */
+    private final AtomicLong evictedHandshakes = new AtomicLong(), evictedSessions = new AtomicLong();
+
+    /**
+     * Accounts the buffers sessions retain, the one of the event handler once the offline handler is set.
+     */
+    private volatile RakMemoryBudget memoryBudget = new RakMemoryBudget();
+
+    /**
+     * Looks for idle sessions.
+     */
+    private ScheduledFuture<?> idleCheck;
+
     /**
      * If this channel is open/active.
      */
@@ -64,18 +140,10 @@ public abstract class RakServerChannel extends AbstractServerChannel {
         group = LocalNetwork.getDefaultGroup();
         open.set(true);
 
-        // default route initializer.
-        final ChannelInitializer<Channel> defaultRouteInitializer = new ChannelInitializer<>() {
-            @Override
-            protected void initChannel(Channel channel) {
-                channel.pipeline().addLast(new RakServerRouteHandler(RakServerChannel.this));
-                channel.pipeline().addLast(offlineHandler);
-            }
-        };
-
         final Bootstrap bootstrap = new Bootstrap()
                 .group(group)
                 .channel(LocalNetwork.getDefaultChannel())
+                .option(ChannelOption.WRITE_BUFFER_WATER_MARK, WATER_MARK)
                 .handler(defaultRouteInitializer);
         bootstraps.add(bootstrap);
     }
@@ -87,6 +155,18 @@ public abstract class RakServerChannel extends AbstractServerChannel {
      */
     public void setOfflineHandler(RakOfflineHandler offlineHandler) {
         this.offlineHandler = offlineHandler;
+
+        final RakEventHandler eventHandler = offlineHandler.getEventHandler();
+        final RakMemoryBudget budget = eventHandler.getMemoryBudget();
+        budget.setLimits(eventHandler::getSessionMemoryLimit, eventHandler::getMemoryLimit);
+        this.memoryBudget = budget;
+    }
+
+    /**
+     * @return the budget of buffers sessions retain.
+     */
+    public RakMemoryBudget getMemoryBudget() {
+        return memoryBudget;
     }
 
     /**
@@ -96,6 +176,124 @@ public abstract class RakServerChannel extends AbstractServerChannel {
         return offlineHandler;
     }
 
+    /**
+     * Attach an already open datagram channel instead of binding sockets.
+     * <p>
+     * Used to replay captures through the real pipeline without a socket.
+     *
+     * @param channel the channel, must be registered.
+     */
+    public void attach(Channel channel) {
+        channel.config().setWriteBufferWaterMark(WATER_MARK);
+        channel.pipeline().addLast(defaultRouteInitializer);
+        channels.add(channel);
+        mainChannel = channels.get(0);
+        bootstraps.clear();
+        startIdleCheck();
+    }
+
+    /**
+     * Set how long sessions may stay silent before they are evicted.
+     *
+     * @param handshake while handshaking
+     * @param session   once established
+     * @param unit      the unit
+     */
+    public void setIdleTimeouts(long handshake, long session, TimeUnit unit) {
+        this.handshakeTimeout = unit.toNanos(handshake);
+        this.sessionTimeout = unit.toNanos(session);
+    }
+
+    /**
+     * @return sessions evicted for being idle while handshaking.
+     */
+    public long getEvictedHandshakes() {
+        return evictedHandshakes.get();
+    }
+
+    /**
+     * @return established sessions evicted for being idle.
+     */
+    public long getEvictedSessions() {
+        return evictedSessions.get();
+    }
+
+    /**
+     * Start looking for idle sessions on the main channel loop.
+     */
+    private void startIdleCheck() {
+        if (idleCheck != null) return;
+        idleCheck = mainChannel.eventLoop().scheduleAtFixedRate(this::evictIdleSessions,
+                IDLE_CHECK_PERIOD_MILLIS, IDLE_CHECK_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Close sessions that have not sent anything within their timeout.
+     * <p>
+     * Closing removes the session from the server and deregisters it, which releases everything its pipeline retains.
+     */
+    private void evictIdleSessions() {
+        final long now = System.nanoTime();
+        final long handshake = handshakeTimeout, session = sessionTimeout;
+
+        int evicted = 0;
+        for (RakChannel channel : sessions()) {
+            final boolean established = channel.isEstablished();
+            if (now - channel.getLastReceived() <= (established ? session : handshake) || !channel.isOpen()) continue;
+
+            (established ? evictedSessions : evictedHandshakes).incrementAndGet();
+            channel.close();
+            evicted++;
+        }
+
+        if (evicted > 0) log.debug("Evicted {} idle sessions.", evicted);
+    }
+
+    /**
+     * Pass a writability change of a bound channel on to every session, if they write through it.
+     *
+     * @param channel the channel
+     */
+    public void writabilityChanged(Channel channel) {
+        if (channel != mainChannel) return;
+
+        final boolean writable = channel.isWritable();
+        if (!writable) log.debug("The socket is congested, sessions are not writable until it drains.");
+        for (RakChannel session : sessions()) session.setSocketWritable(writable);
+    }
+
+    /**
+     * Start recording every inbound datagram into a capture file.
+     *
+     * @param file the file
+     * @throws IOException if the file could not be created.
+     */
+    public synchronized void startCapture(Path file) throws IOException {
+        if (capture != null) throw new IllegalStateException("A capture is already running.");
+
+        capture = new RakCaptureWriter(file);
+        for (Channel channel : channels) channel.pipeline().addFirst(CAPTURE_HANDLER, capture);
+        log.info("Capturing inbound datagrams to {}", file);
+    }
+
+    /**
+     * Stop the current capture, if any.
+     */
+    public synchronized void stopCapture() {
+        if (capture == null) return;
+
+        for (Channel channel : channels) {
+            if (channel.pipeline().get(CAPTURE_HANDLER) != null) channel.pipeline().remove(CAPTURE_HANDLER);
+        }
+        capture.close();
+        capture = null;
+    }
+
+    /**
+     * @return every open session
+     */
+    protected abstract Collection<? extends RakChannel> sessions();
+
     @Override
     protected boolean isCompatible(EventLoop loop) {
         return true;
@@ -113,6 +311,7 @@ public abstract class RakServerChannel extends AbstractServerChannel {
         }
         mainChannel = channels.get(0);
         bootstraps.clear();
+        startIdleCheck();
     }
 
     @Override
@@ -120,12 +319,123 @@ public abstract class RakServerChannel extends AbstractServerChannel {
 
     }
 
+    /**
+     * Close in stages: stop accepting handshakes, write what sessions still have queued, tell every session it was
+     * disconnected and then stop the loops, which frees their buffer caches.
+     * <p>
+     * Each stage runs on the main channel loop once the previous one finished, whatever is left at the deadline is dropped.
+     * Called from outside that loop this waits for every stage, otherwise they finish after it returns.
+     */
     @Override
     protected void doClose() throws Exception {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SHUTDOWN_TIMEOUT_MILLIS);
+
+        // the offline handler refuses handshakes from now on.
         open.set(false);
-        mainChannel.close();
+        stopCapture();
+        if (idleCheck != null) idleCheck.cancel(false);
+
+        final List<? extends RakChannel> sessions = List.copyOf(sessions());
+        final List<Channel> bound = List.copyOf(channels);
         channels.clear();
-        group.shutdownGracefully().sync();
+
+        if (mainChannel == null) {
+            group.shutdownGracefully(0, SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        final EventLoop loop = mainChannel.eventLoop();
+        final Promise<Void> closed = loop.newPromise();
+        final ScheduledFuture<?> timeout = loop.schedule(() -> {
+            log.warn("Timed out closing sessions, dropping what is left.");
+            finishClose(sessions, bound, deadline, closed);
+        }, remaining(deadline), TimeUnit.NANOSECONDS);
+        closed.addListener(future -> timeout.cancel(false));
+
+        for (RakChannel session : sessions) {
+            if (session.isRegistered()) session.flushForClose();
+        }
+        loop.execute(() -> whenFlushed(sessions, closed, () -> disconnectSessions(sessions, () -> finishClose(sessions, bound, deadline, closed))));
+
+        // waiting on the loop that runs the stages would never finish.
+        if (!loop.inEventLoop()) {
+            closed.awaitUninterruptibly(remaining(deadline) + TimeUnit.SECONDS.toNanos(1), TimeUnit.NANOSECONDS);
+            group.terminationFuture().awaitUninterruptibly(remaining(deadline) + TimeUnit.SECONDS.toNanos(1), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Run {@code next} once every session wrote what it had queued, checking on the main channel loop.
+     *
+     * @param sessions the sessions
+     * @param closed   completed once closing finished, checking stops then.
+     * @param next     the next stage
+     */
+    private void whenFlushed(List<? extends RakChannel> sessions, Promise<Void> closed, Runnable next) {
+        if (closed.isDone()) return;
+
+        for (RakChannel session : sessions) {
+            if (session.isOpen() && session.isRegistered() && !session.isFlushed()) {
+                mainChannel.eventLoop().schedule(() -> whenFlushed(sessions, closed, next), FLUSH_CHECK_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+                return;
+            }
+        }
+        next.run();
+    }
+
+    /**
+     * Tell every session it was disconnected, flushing once per batch, on the main channel loop.
+     *
+     * @param sessions the sessions
+     * @param next     run once every batch is written.
+     */
+    private void disconnectSessions(List<? extends RakChannel> sessions, Runnable next) {
+        if (sessions.isEmpty()) {
+            next.run();
+            return;
+        }
+
+        log.info("Disconnecting {} sessions...", sessions.size());
+        final int batches = (sessions.size() + DISCONNECT_BATCH_SIZE - 1) / DISCONNECT_BATCH_SIZE;
+        final AtomicInteger remaining = new AtomicInteger(batches);
+
+        for (int from = 0; from < sessions.size(); from += DISCONNECT_BATCH_SIZE) {
+            final List<? extends RakChannel> batch = sessions.subList(from, Math.min(from + DISCONNECT_BATCH_SIZE, sessions.size()));
+
+            // datagrams are written in order, so the last write completes the batch.
+            ChannelFuture last = null;
+            for (RakChannel session : batch) last = mainChannel.write(session.newDisconnectNotification(mainChannel.alloc()));
+            mainChannel.flush();
+            last.addListener(future -> {
+                if (remaining.decrementAndGet() == 0) next.run();
+            });
+        }
+    }
+
+    /**
+     * Close every session and bound channel and stop the loops, only once and on the main channel loop.
+     *
+     * @param sessions the sessions
+     * @param bound    the bound channels
+     * @param deadline the deadline
+     * @param closed   completed once done
+     */
+    private void finishClose(List<? extends RakChannel> sessions, List<Channel> bound, long deadline, Promise<Void> closed) {
+        if (closed.isDone()) return;
+
+        for (RakChannel session : sessions) session.close();
+        for (Channel channel : bound) channel.close();
+        closed.trySuccess(null);
+
+        group.shutdownGracefully(0, Math.max(remaining(deadline), 1), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param deadline the deadline
+     * @return nanoseconds until the deadline, at least zero.
+     */
+    private static long remaining(long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
     }
 
     @Override
@@ -32,6 +32,8 @@ public final class RakServerRouteHandler extends SimpleChannelInboundHandler<Dat
             return;
         }
 
+        channel.markReceived();
+
         // retrieve buffer, and pass it off.
         final ByteBuf buffer = msg.content().retain();
 
@@ -41,4 +43,10 @@ public final class RakServerRouteHandler extends SimpleChannelInboundHandler<Dat
             channel.eventLoop().execute(() -> channel.pipeline().fireChannelRead(buffer).fireChannelReadComplete());
         }
     }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+        serverChannel.writabilityChanged(ctx.channel());
+        ctx.fireChannelWritabilityChanged();
+    }
 }
@@ -6,6 +6,7 @@ import org.crimson.v3.netty.RakServerChannel;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.util.Collection;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -34,6 +35,18 @@ public final class RakNetServerChannel extends RakServerChannel {
         channels.clear();
     }
 
+    @Override
+    protected Collection<RakNetChannel> sessions() {
+        return channels.values();
+    }
+
+    /**
+     * @return amount of open sessions
+     */
+    public int getSessionCount() {
+        return channels.size();
+    }
+
     /**
      * Create a new {@link RakNetChannel} and initialize it.
      *
@@ -5,6 +5,7 @@ import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.socket.DatagramPacket;
 import io.netty.handler.codec.MessageToMessageDecoder;
+import org.crimson.v3.netty.RakChannel;
 import org.crimson.v3.raknet.RakNetProtocol;
 import org.crimson.v3.raknet.packet.RakNetDatagram;
 
@@ -12,6 +13,8 @@ import java.util.List;
 
 /**
  * Decodes incoming {@link DatagramPacket}'s to a new {@link RakNetDatagram}
+ * <p>
+ * Acknowledgements are handed to the session directly, so it stops or starts sending reliable datagrams again.
  */
 @ChannelHandler.Sharable
 public final class RakDatagramDecoder extends MessageToMessageDecoder<ByteBuf> {
@@ -38,7 +41,13 @@ public final class RakDatagramDecoder extends MessageToMessageDecoder<ByteBuf> {
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf content, List<Object> out) {
         if (!content.isReadable()) return;
-        content.readByte(); // ignore initial potential byte.
+        final byte flags = content.readByte();
+
+        if ((flags & (RakNetProtocol.ACK | RakNetProtocol.NACK)) != 0) {
+            if (!(ctx.channel() instanceof RakChannel session)) return;
+            if (!readAcknowledgements(content, (flags & RakNetProtocol.ACK) != 0, session)) ctx.channel().close();
+            return;
+        }
 
         // initialize a new datagram and decode it.
         final RakNetDatagram datagram = new RakNetDatagram();
@@ -50,4 +59,33 @@ public final class RakDatagramDecoder extends MessageToMessageDecoder<ByteBuf> {
         }
     }
 
+    /**
+     * Read the ranges of an acknowledgement, each either a single sequence number or a first and last one.
+     *
+     * @param content      the content
+     * @param acknowledged {@code true} if the datagrams were received, {@code false} if they were lost.
+     * @param session      the session
+     * @return {@code false} if the acknowledgement is malformed.
+     */
+    private boolean readAcknowledgements(ByteBuf content, boolean acknowledged, RakChannel session) {
+        if (!content.isReadable(2)) return false;
+
+        final int ranges = content.readUnsignedShort();
+        for (int i = 0; i < ranges; i++) {
+            if (!content.isReadable(4)) return false;
+
+            final boolean single = content.readBoolean();
+            final int start = content.readUnsignedMediumLE();
+            if (!single && !content.isReadable(3)) return false;
+
+            final int end = single ? start : content.readUnsignedMediumLE();
+            if (acknowledged) {
+                session.acknowledged(start, end);
+            } else {
+                session.lost(start, end);
+            }
+        }
+        return true;
+    }
+
 }
@@ -25,7 +25,7 @@ public final class RakMessageDecoder extends MessageToMessageDecoder<RakNetDatag
 
         msg.getPackets().forEach(packet -> {
             final int pid = packet.getContents().readUnsignedByte();
-            final RakNetMessage message = new RakNetMessage(pid, packet.getContents());
+            final RakNetMessage message = new RakNetMessage(pid, packet.getReliability(), packet.getContents());
             out.add(message);
         });
 
@@ -6,8 +6,8 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.socket.DatagramPacket;
-import io.netty.util.ReferenceCountUtil;
 import lombok.extern.log4j.Log4j2;
+import org.crimson.v3.RakEventHandler;
 import org.crimson.v3.RakNetServer;
 import org.crimson.v3.netty.RakServerChannel;
 import org.crimson.v3.netty.impl.RakNetChannel;
@@ -16,13 +16,13 @@ import org.crimson.v3.netty.pipeline.AcceptableInboundMessageHandler;
 import org.crimson.v3.raknet.RakNetProtocol;
 import org.crimson.v3.raknet.offline.DefaultRakOfflineEncoder;
 import org.crimson.v3.raknet.offline.RakOfflineEncoder;
+import org.crimson.v3.utility.AddressBlocklist;
 import org.crimson.v3.utility.LocalNetwork;
 
-import java.net.Inet6Address;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Handles offline messages.
@@ -34,23 +34,32 @@ public final class RakOfflineHandler extends AcceptableInboundMessageHandler<Dat
     /**
      * Holds a cache of offline connections attempting to connect.
      */
-    private final Cache<InetSocketAddress, Integer> offlineConnections = CacheBuilder.newBuilder()
+    private final Cache<InetSocketAddress, PendingConnection> offlineConnections = CacheBuilder.newBuilder()
             .expireAfterWrite(30, TimeUnit.SECONDS)
-            .removalListener(notification -> ReferenceCountUtil.release(notification.getValue()))
             .build();
 
     /**
-     * Map of banned ip addresses.
+     * Banned ip addresses and ranges.
      * <p>
      * Useful for when you want them totally blocked, with no reason.
      */
-    private final Set<InetSocketAddress> bannedIpAddresses = ConcurrentHashMap.newKeySet();
+    private final AddressBlocklist bannedIpAddresses = new AddressBlocklist();
+
+    /**
+     * Consulted for bans kept by the server.
+     */
+    private final RakEventHandler eventHandler;
 
     /**
      * The encoder.
      */
     private final RakOfflineEncoder encoder;
 
+    /**
+     * Handshakes refused because the server was full, overloaded or closing.
+     */
+    private final LongAdder refusedHandshakes = new LongAdder();
+
     /**
      * Server channel.
      */
@@ -60,6 +69,7 @@ public final class RakOfflineHandler extends AcceptableInboundMessageHandler<Dat
         super(DatagramPacket.class);
 
         encoder = new DefaultRakOfflineEncoder(server);
+        eventHandler = server.getEventHandler();
     }
 
     /**
@@ -72,12 +82,68 @@ public final class RakOfflineHandler extends AcceptableInboundMessageHandler<Dat
     }
 
     /**
-     * Ban an ip-address.
+     * @return the event handler
+     */
+    public RakEventHandler getEventHandler() {
+        return eventHandler;
+    }
+
+    /**
+     * Ban an ip-address, regardless of port.
+     *
+     * @param address the address
+     */
+    public void banIpAddress(InetAddress address) {
+        this.bannedIpAddresses.add(address, address.getAddress().length * 8);
+    }
+
+    /**
+     * Ban a range of ip-addresses.
+     *
+     * @param address      the address
+     * @param prefixLength the CIDR prefix length
+     */
+    public void banIpRange(InetAddress address, int prefixLength) {
+        this.bannedIpAddresses.add(address, prefixLength);
+    }
+
+    /**
+     * @return banned ip addresses and ranges.
+     */
+    public AddressBlocklist getBannedIpAddresses() {
+        return bannedIpAddresses;
+    }
+
+    /**
+     * Check if an address is banned, either here or by the server.
      *
      * @param address the address
+     * @return {@code true} if so
+     */
+    private boolean isBanned(InetSocketAddress address) {
+        final InetAddress ip = address.getAddress();
+        return bannedIpAddresses.contains(ip) || eventHandler.isAddressBanned(ip);
+    }
+
+    /**
+     * @return handshakes refused because the server was full, overloaded or closing.
      */
-    public void banIpAddress(InetSocketAddress address) {
-        this.bannedIpAddresses.add(address);
+    public long getRefusedHandshakes() {
+        return refusedHandshakes.sum();
+    }
+
+    /**
+     * Check if a handshake may go ahead.
+     *
+     * @param pending if the handshake is already counted as pending
+     * @return {@code false} if the server is closing or the event handler refuses it.
+     */
+    private boolean admit(boolean pending) {
+        if (rakNetServerChannel != null && !rakNetServerChannel.isActive()) return false;
+
+        final int sessions = rakNetServerChannel == null ? 0 : rakNetServerChannel.getSessionCount();
+        final int handshakes = (int) offlineConnections.size() - (pending ? 1 : 0);
+        return eventHandler.canAdmit(sessions, Math.max(handshakes, 0));
     }
 
     @Override
@@ -139,17 +205,36 @@ public final class RakOfflineHandler extends AcceptableInboundMessageHandler<Dat
         content.skipBytes(16);
 
         // ensure sender is not banned.
-        if (bannedIpAddresses.contains(recipient)) {
+        if (isBanned(recipient)) {
             encoder.sendConnectionBanned(context, recipient);
             return;
         }
 
         // ensure sender is not already connected.
-        if (offlineConnections.getIfPresent(recipient) != null) {
+        if (rakNetServerChannel != null && rakNetServerChannel.getChannel(recipient) != null) {
             encoder.sendAlreadyConnected(context, recipient);
             return;
         }
 
+        // the probe size tells how large datagrams can be on the path: id, magic, then the protocol version and padding still unread.
+        final int probe = content.readableBytes() + 1 + 16 + RakNetProtocol.ipHeaderSize(recipient) + RakNetProtocol.UDP_HEADER_SIZE;
+
+        // a repeated request means our reply was lost, clients retry with smaller probes.
+        final PendingConnection pending = offlineConnections.getIfPresent(recipient);
+        if (pending != null) {
+            final PendingConnection updated = new PendingConnection(pending.protocolVersion(), Math.max(pending.mtu(), probe));
+            offlineConnections.put(recipient, updated);
+            encoder.sendOpenConnectionReply1(context, recipient, RakNetProtocol.clampMtuSize(updated.mtu()));
+            return;
+        }
+
+        // refuse before any state is created if the server is full, overloaded or closing.
+        if (!admit(false)) {
+            refusedHandshakes.increment();
+            encoder.sendNoFreeIncomingConnections(context, recipient);
+            return;
+        }
+
         // ensure we have a valid protocol.
         final int protocolVersion = content.readUnsignedByte();
         if (protocolVersion != RakNetProtocol.PROTOCOL_VERSION) {
@@ -158,11 +243,8 @@ public final class RakOfflineHandler extends AcceptableInboundMessageHandler<Dat
         }
 
         // add this to a pending connections list now.
-        offlineConnections.put(recipient, protocolVersion);
-
-        // Credit: CloudburstMC Network 2.0-
-        final int mtu = content.readableBytes() + 1 + 16 + 1 + (recipient.getAddress() instanceof Inet6Address ? 40 : 20) + 8;
-        encoder.sendOpenConnectionReply1(context, recipient, RakNetProtocol.clampMtuSize(mtu));
+        offlineConnections.put(recipient, new PendingConnection(protocolVersion, probe));
+        encoder.sendOpenConnectionReply1(context, recipient, RakNetProtocol.clampMtuSize(probe));
     }
 
     /**
@@ -175,29 +257,73 @@ public final class RakOfflineHandler extends AcceptableInboundMessageHandler<Dat
     private void onOpenConnectionRequest2(ChannelHandlerContext context, InetSocketAddress recipient, DatagramPacket p, ByteBuf content) {
         content.skipBytes(16);
 
-        // ensure we already have a pending connection
-        final Integer protocolVersion = offlineConnections.getIfPresent(recipient);
-        if (protocolVersion == null) return;
+        // the ban may have been added since the first request.
+        if (isBanned(recipient)) {
+            offlineConnections.invalidate(recipient);
+            encoder.sendConnectionBanned(context, recipient);
+            return;
+        }
 
         // retrieve server address the client wants to connect to.
         final InetSocketAddress address = LocalNetwork.readAddress(content);
-        final int mtu = content.readUnsignedShort();
+        final int requestedMtu = content.readUnsignedShort();
         final long guid = content.readLong();
 
-        // initialize a new channel.
+        // a session already exists, its handshake is no longer pending and it is already counted.
+        final RakNetChannel existing = rakNetServerChannel.getChannel(recipient);
+        if (existing != null) {
+            // our reply was lost, repeat it.
+            if (!existing.isEstablished()) {
+                encoder.sendOpenConnectionReply2(context, existing, recipient, address, existing.getMtu());
+            } else {
+                encoder.sendAlreadyConnected(context, recipient);
+            }
+            return;
+        }
+
+        // ensure we already have a pending connection
+        final PendingConnection pending = offlineConnections.getIfPresent(recipient);
+        if (pending == null) return;
+
+        // load may have changed since the first request.
+        if (!admit(true)) {
+            offlineConnections.invalidate(recipient);
+            refusedHandshakes.increment();
+            encoder.sendNoFreeIncomingConnections(context, recipient);
+            return;
+        }
+
+        // never more than the largest probe that reached us, the path would fragment it.
+        final int mtu = RakNetProtocol.clampMtuSize(Math.min(requestedMtu, pending.mtu()));
+
+        // initialize a new channel, another request may have created it first.
         final RakNetChannel channel = rakNetServerChannel.createRakChannel(recipient);
+        offlineConnections.invalidate(recipient);
         if (channel == null) {
             encoder.sendAlreadyConnected(context, recipient);
             return;
         }
 
+        eventHandler.onSessionOpened(recipient);
+        channel.closeFuture().addListener(future -> eventHandler.onSessionClosed(recipient));
+
         // set properties
-        channel.setProtocolVersion(protocolVersion);
+        channel.setProtocolVersion(pending.protocolVersion());
         channel.setMtu(mtu);
         channel.setGuid(guid);
+        channel.setHandOffEnabled(eventHandler.onSessionCreated(channel));
 
         // finally, send off.
         encoder.sendOpenConnectionReply2(context, channel, recipient, address, mtu);
     }
 
+    /**
+     * A handshake in progress.
+     *
+     * @param protocolVersion the protocol version
+     * @param mtu             the largest probe received, including IP and UDP headers.
+     */
+    private record PendingConnection(int protocolVersion, int mtu) {
+    }
+
 }
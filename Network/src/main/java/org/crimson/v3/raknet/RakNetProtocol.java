@@ -19,6 +19,12 @@ public interface RakNetProtocol {
     int UDP_HEADER_SIZE = 8;
     int DATAGRAM_HEADER_SIZE = 4;
 
+    /**
+     * Smallest MTU every IPv4 host must accept, and the largest we agree to, which leaves room for tunnels.
+     */
+    int MINIMUM_MTU_SIZE = 576;
+    int MAXIMUM_MTU_SIZE = 1400;
+
     /**
      * 0x00 ff ff 00 fe fe fe fe fd fd fd fd 12 34 56 78
      * RakNet magic values
@@ -42,6 +48,16 @@ public interface RakNetProtocol {
      */
     byte VALID = (byte) 0b10000000;
 
+    /**
+     * ACK flag, set along with {@code VALID}.
+     */
+    byte ACK = (byte) 0b01000000;
+
+    /**
+     * NACK flag, set along with {@code VALID}.
+     */
+    byte NACK = (byte) 0b00100000;
+
     /**
      * Reliability bit flag
      */
@@ -134,13 +150,26 @@ public interface RakNetProtocol {
      */
     byte CONNECTION_REQUEST_ACCEPTED = 0x10;
 
+    /**
+     * Messages with this id or higher belong to the game, they are handed to the main thread.
+     */
+    int USER_PACKET_ENUM = 0x86;
+
     /**
      * Clamp MTU size
      *
      * @param mtu mtu
      */
     static int clampMtuSize(int mtu) {
-        return Math.max(576, Math.min(1400, mtu));
+        return Math.max(MINIMUM_MTU_SIZE, Math.min(MAXIMUM_MTU_SIZE, mtu));
+    }
+
+    /**
+     * @param address the address
+     * @return the size of the IP header of datagrams to or from the address.
+     */
+    static int ipHeaderSize(InetSocketAddress address) {
+        return address.getAddress() instanceof Inet6Address ? 40 : 20;
     }
 
     /**
@@ -5,6 +5,7 @@ import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import lombok.extern.log4j.Log4j2;
+import org.crimson.v3.netty.RakChannel;
 import org.crimson.v3.raknet.RakNetProtocol;
 import org.crimson.v3.raknet.packet.RakNetMessage;
 
@@ -25,10 +26,30 @@ public final class RakInitialOnlineHandler extends SimpleChannelInboundHandler<R
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, RakNetMessage msg) {
         switch (msg.id()) {
-            case RakNetProtocol.CONNECTION_REQUEST -> log.info("CONNECTION REQUEST.");
+            case RakNetProtocol.CONNECTION_REQUEST -> {
+                log.info("CONNECTION REQUEST.");
+                if (ctx.channel() instanceof RakChannel session) session.setEstablished();
+            }
+            default -> {
+                if (msg.id() >= RakNetProtocol.USER_PACKET_ENUM) handOff(ctx, msg);
+            }
         }
     }
 
+    /**
+     * Hand a game message to the main thread, game logic never runs on the event loop.
+     *
+     * @param ctx the context
+     * @param msg the message
+     */
+    private void handOff(ChannelHandlerContext ctx, RakNetMessage msg) {
+        // nobody drains this session, do not bother copying.
+        if (!(ctx.channel() instanceof RakChannel session) || !session.isHandOffEnabled()) return;
+
+        // a copy, so the whole datagram it came in is not kept until the tick.
+        session.handOff(new RakNetMessage(msg.id(), msg.reliability(), msg.buffer().copy()));
+    }
+
     private void onConnectionRequest(ChannelHandlerContext ctx, RakNetMessage message) {
         message.buffer().readLong(); // read client guid.
         final long time = message.buffer().readLong();
@@ -39,6 +39,16 @@ public record DefaultRakOfflineEncoder(RakNetServer server) implements RakOfflin
         context.writeAndFlush(new DatagramPacket(buffer, recipient));
     }
 
+    @Override
+    public void sendNoFreeIncomingConnections(ChannelHandlerContext context, InetSocketAddress recipient) {
+        final ByteBuf buffer = context.alloc().ioBuffer(25, 25);
+        buffer.writeByte(RakNetProtocol.NO_FREE_INCOMING_CONNECTIONS);
+        buffer.writeBytes(RakNetProtocol.MAGIC);
+        buffer.writeLong(server.getId());
+
+        context.writeAndFlush(new DatagramPacket(buffer, recipient));
+    }
+
     @Override
     public void sendIncompatibleProtocol(ChannelHandlerContext context, InetSocketAddress recipient, int protocolVersion) {
         final ByteBuf buffer = context.alloc().ioBuffer(26, 26);
@@ -28,6 +28,14 @@ public interface RakOfflineEncoder {
      */
     void sendConnectionBanned(ChannelHandlerContext context, InetSocketAddress recipient);
 
+    /**
+     * Send no free incoming connections, the server is full or shutting down.
+     *
+     * @param context   the context
+     * @param recipient the recipient
+     */
+    void sendNoFreeIncomingConnections(ChannelHandlerContext context, InetSocketAddress recipient);
+
     /**
      * Send incompatible protocol.
      *
@@ -62,9 +62,16 @@ public final class RakEncapsulatedPacket extends AbstractReferenceCounted {
         return contents;
     }
 
+    /**
+     * @return the reliability of this packet.
+     */
+    public RakNetReliability getReliability() {
+        return reliability;
+    }
+
     @Override
     public RakEncapsulatedPacket retain() {
-        return ReferenceCountUtil.retain(this);
+        return (RakEncapsulatedPacket) super.retain();
     }
 
     @Override
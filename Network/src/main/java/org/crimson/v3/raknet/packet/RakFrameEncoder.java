@@ -0,0 +1,127 @@
+package org.crimson.v3.raknet.packet;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import org.crimson.v3.raknet.RakNetProtocol;
+import org.crimson.v3.raknet.reliability.RakNetReliability;
+
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Wraps outgoing messages of a session within frames and datagrams no larger than its MTU.
+ * <p>
+ * Messages that do not fit are split into several frames, one per datagram, instead of leaving it to IP fragmentation.
+ * Keeps the indexes of a session so it must only be used from the session event loop.
+ */
+public final class RakFrameEncoder {
+
+    /**
+     * Size of the split count, id and index of a split frame.
+     */
+    private static final int SPLIT_HEADER_SIZE = 10;
+
+    /**
+     * The next reliable, sequenced and order index.
+     */
+    private int reliableIndex, sequencedIndex, orderIndex;
+
+    /**
+     * The next split id.
+     */
+    private int splitId;
+
+    /**
+     * Encode a message.
+     *
+     * @param allocator       the allocator
+     * @param message         the message, released by this method.
+     * @param reliability     the reliability
+     * @param maxDatagramSize largest datagram payload, the MTU without IP and UDP headers.
+     * @param sequence        gives the sequence number of each datagram
+     * @param out             receives each datagram
+     */
+    public void encode(ByteBufAllocator allocator, ByteBuf message, RakNetReliability reliability, int maxDatagramSize,
+                       IntSupplier sequence, Consumer<ByteBuf> out) {
+        try {
+            final int available = maxDatagramSize - RakNetProtocol.DATAGRAM_HEADER_SIZE - headerSize(reliability, false);
+            final int orderIndex = reliability.isOrdered() || reliability.isSequenced() ? this.orderIndex++ : 0;
+            final int sequencedIndex = reliability.isSequenced() ? this.sequencedIndex++ : 0;
+
+            if (message.readableBytes() <= available) {
+                out.accept(frame(allocator, message, message.readableBytes(), reliability, sequence.getAsInt(), sequencedIndex, orderIndex, -1, 0, 0));
+                return;
+            }
+
+            // split frames must be reliable so the client can put them back together, the session sends lost ones again.
+            final RakNetReliability split = reliable(reliability);
+            final int size = maxDatagramSize - RakNetProtocol.DATAGRAM_HEADER_SIZE - headerSize(split, true);
+            final int count = (message.readableBytes() + size - 1) / size;
+            final int id = splitId++ & 0xFFFF;
+
+            for (int index = 0; index < count; index++) {
+                final int length = Math.min(size, message.readableBytes());
+                out.accept(frame(allocator, message, length, split, sequence.getAsInt(), sequencedIndex, orderIndex, id, count, index));
+            }
+        } finally {
+            message.release();
+        }
+    }
+
+    /**
+     * Write a single frame within its own datagram.
+     */
+    private ByteBuf frame(ByteBufAllocator allocator, ByteBuf message, int length, RakNetReliability reliability,
+                          int sequence, int sequencedIndex, int orderIndex, int splitId, int splitCount, int splitIndex) {
+        final boolean split = splitId >= 0;
+        final ByteBuf buffer = allocator.ioBuffer(RakNetProtocol.DATAGRAM_HEADER_SIZE + headerSize(reliability, split) + length);
+
+        buffer.writeByte(RakNetProtocol.VALID);
+        buffer.writeMediumLE(sequence);
+        buffer.writeByte(reliability.ordinal() << 5 | (split ? RakNetProtocol.SPLIT : 0));
+        buffer.writeShort(length << 3);
+
+        if (reliability.isReliable()) buffer.writeMediumLE(reliableIndex++);
+        if (reliability.isSequenced()) buffer.writeMediumLE(sequencedIndex);
+        if (reliability.isOrdered() || reliability.isSequenced()) {
+            buffer.writeMediumLE(orderIndex);
+            buffer.writeByte(0);
+        }
+        if (split) {
+            buffer.writeInt(splitCount);
+            buffer.writeShort(splitId);
+            buffer.writeInt(splitIndex);
+        }
+
+        buffer.writeBytes(message, length);
+        return buffer;
+    }
+
+    /**
+     * @param reliability the reliability
+     * @param split       if the frame is split
+     * @return the size of a frame header
+     */
+    public static int headerSize(RakNetReliability reliability, boolean split) {
+        int size = 3;
+        if (reliability.isReliable()) size += 3;
+        if (reliability.isSequenced()) size += 3;
+        if (reliability.isOrdered() || reliability.isSequenced()) size += 4;
+        if (split) size += SPLIT_HEADER_SIZE;
+        return size;
+    }
+
+    /**
+     * @param reliability the reliability
+     * @return the reliable counterpart
+     */
+    private static RakNetReliability reliable(RakNetReliability reliability) {
+        return switch (reliability) {
+            case UNRELIABLE -> RakNetReliability.RELIABLE;
+            case UNRELIABLE_SEQUENCED -> RakNetReliability.RELIABLE_SEQUENCED;
+            case UNRELIABLE_WITH_ACK_RECEIPT -> RakNetReliability.RELIABLE_WITH_ACK_RECEIPT;
+            default -> reliability;
+        };
+    }
+
+}
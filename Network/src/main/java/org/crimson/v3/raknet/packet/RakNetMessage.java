@@ -1,9 +1,10 @@
 package org.crimson.v3.raknet.packet;
 
 import io.netty.buffer.ByteBuf;
+import org.crimson.v3.raknet.reliability.RakNetReliability;
 
 /**
  * Basic RakMessage impl.
  */
-public record RakNetMessage(int id, ByteBuf buffer) {
+public record RakNetMessage(int id, RakNetReliability reliability, ByteBuf buffer) {
 }
@@ -0,0 +1,189 @@
+package org.crimson.v3.raknet.reliability;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Keeps datagrams carrying reliable frames until the client acknowledges them,
+ * to send them again once the client reports them lost or does not acknowledge them in time.
+ * <p>
+ * A datagram sent again gets a new sequence number, its frames keep their indexes so the client drops duplicates.
+ * Keeps the datagrams of a session so it must only be used from the session event loop.
+ */
+public final class RakResendBuffer {
+
+    /**
+     * Sequence numbers wrap around at 24 bits.
+     */
+    private static final int SEQUENCE_MASK = 0xFFFFFF;
+
+    /**
+     * Datagrams not acknowledged yet by sequence number, least recently sent first.
+     */
+    private final LinkedHashMap<Integer, Pending> pending = new LinkedHashMap<>();
+
+    /**
+     * Keep a datagram about to be sent.
+     *
+     * @param datagram the datagram, not released by this method.
+     * @param now      the time it is sent, from {@link System#nanoTime()}.
+     */
+    public void add(ByteBuf datagram, long now) {
+        keep(datagram.getUnsignedMediumLE(datagram.readerIndex() + 1), datagram.retainedDuplicate(), now);
+    }
+
+    /**
+     * Drop datagrams the client acknowledged.
+     *
+     * @param start the first sequence number
+     * @param end   the last sequence number, inclusive
+     * @return the bytes no longer kept
+     */
+    public int acknowledge(int start, int end) {
+        int released = 0;
+        for (Pending acknowledged : take(start, end)) {
+            released += acknowledged.datagram().readableBytes();
+            acknowledged.datagram().release();
+        }
+        return released;
+    }
+
+    /**
+     * Send datagrams the client reported lost again.
+     *
+     * @param start     the first sequence number
+     * @param end       the last sequence number, inclusive
+     * @param allocator the allocator
+     * @param sequence  gives the new sequence number of each datagram
+     * @param now       the time they are sent, from {@link System#nanoTime()}.
+     * @param out       receives each datagram
+     * @return the amount of datagrams sent again
+     */
+    public int resend(int start, int end, ByteBufAllocator allocator, IntSupplier sequence, long now, Consumer<ByteBuf> out) {
+        final List<Pending> lost = take(start, end);
+        for (Pending datagram : lost) send(datagram, allocator, sequence, now, out);
+        return lost.size();
+    }
+
+    /**
+     * Send datagrams again that were not acknowledged in time.
+     *
+     * @param sentBefore datagrams sent before are sent again, from {@link System#nanoTime()}.
+     * @param allocator  the allocator
+     * @param sequence   gives the new sequence number of each datagram
+     * @param now        the time they are sent, from {@link System#nanoTime()}.
+     * @param out        receives each datagram
+     * @return the amount of datagrams sent again
+     */
+    public int resendExpired(long sentBefore, ByteBufAllocator allocator, IntSupplier sequence, long now, Consumer<ByteBuf> out) {
+        final List<Pending> expired = new ArrayList<>();
+        for (Iterator<Pending> iterator = pending.values().iterator(); iterator.hasNext(); ) {
+            final Pending datagram = iterator.next();
+            if (datagram.sentAt() - sentBefore >= 0) break;
+
+            iterator.remove();
+            expired.add(datagram);
+        }
+
+        for (Pending datagram : expired) send(datagram, allocator, sequence, now, out);
+        return expired.size();
+    }
+
+    /**
+     * Release every datagram, once the session is closed.
+     *
+     * @return the bytes no longer kept
+     */
+    public int clear() {
+        int released = 0;
+        for (Pending datagram : pending.values()) {
+            released += datagram.datagram().readableBytes();
+            datagram.datagram().release();
+        }
+        pending.clear();
+        return released;
+    }
+
+    /**
+     * @return {@code true} if every datagram was acknowledged.
+     */
+    public boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    /**
+     * @return amount of datagrams not acknowledged yet.
+     */
+    public int size() {
+        return pending.size();
+    }
+
+    /**
+     * Remove the datagrams within a range of sequence numbers.
+     * A range wider than what is kept walks what is kept instead, so a client can not make it loop 16 million times.
+     */
+    private List<Pending> take(int start, int end) {
+        final int span = (end - start) & SEQUENCE_MASK;
+        final List<Pending> taken = new ArrayList<>();
+
+        if (span < pending.size()) {
+            for (int offset = 0; offset <= span; offset++) {
+                final Pending datagram = pending.remove((start + offset) & SEQUENCE_MASK);
+                if (datagram != null) taken.add(datagram);
+            }
+        } else {
+            for (Iterator<Map.Entry<Integer, Pending>> iterator = pending.entrySet().iterator(); iterator.hasNext(); ) {
+                final Map.Entry<Integer, Pending> entry = iterator.next();
+                if (((entry.getKey() - start) & SEQUENCE_MASK) > span) continue;
+
+                iterator.remove();
+                taken.add(entry.getValue());
+            }
+        }
+        return taken;
+    }
+
+    /**
+     * Send a copy with a new sequence number and keep it under that number, the datagram kept is never changed
+     * since the socket may still be writing it.
+     */
+    private void send(Pending datagram, ByteBufAllocator allocator, IntSupplier sequence, long now, Consumer<ByteBuf> out) {
+        final ByteBuf kept = datagram.datagram();
+        final int length = kept.readableBytes();
+
+        final ByteBuf copy = allocator.ioBuffer(length);
+        copy.writeByte(kept.getByte(kept.readerIndex()));
+        copy.writeMediumLE(sequence.getAsInt());
+        copy.writeBytes(kept, kept.readerIndex() + 4, length - 4);
+
+        keep(copy.getUnsignedMediumLE(1), kept, now);
+        out.accept(copy);
+    }
+
+    /**
+     * Keep a datagram under its sequence number.
+     * A sequence number is only reused after 16 million datagrams, far more than the memory budget lets a session keep.
+     */
+    private void keep(int sequence, ByteBuf datagram, long now) {
+        final Pending previous = pending.put(sequence, new Pending(datagram, now));
+        if (previous != null) previous.datagram().release();
+    }
+
+    /**
+     * A datagram not acknowledged yet.
+     *
+     * @param datagram the datagram
+     * @param sentAt   when it was last sent, from {@link System#nanoTime()}.
+     */
+    private record Pending(ByteBuf datagram, long sentAt) {
+    }
+
+}
@@ -0,0 +1,73 @@
+package org.crimson.v3.utility;
+
+import java.net.InetAddress;
+import java.util.function.UnaryOperator;
+
+/**
+ * A set of blocked addresses and ranges.
+ * <p>
+ * Reads go to an immutable {@link AddressTrie} snapshot and never lock.
+ * Writers build the next snapshot and publish it at once, use {@link #update(UnaryOperator)} to apply many changes
+ * with a single publish, such as when loading a blocklist.
+ */
+public final class AddressBlocklist {
+
+    /**
+     * The current snapshot.
+     */
+    private volatile AddressTrie trie = AddressTrie.EMPTY;
+
+    /**
+     * Check if an address is blocked.
+     *
+     * @param address the address
+     * @return {@code true} if so
+     */
+    public boolean contains(InetAddress address) {
+        return trie.contains(address);
+    }
+
+    /**
+     * Block an address range.
+     *
+     * @param address      the address
+     * @param prefixLength the prefix length, the full address length to block a single address.
+     */
+    public void add(InetAddress address, int prefixLength) {
+        update(trie -> trie.add(address.getAddress(), prefixLength));
+    }
+
+    /**
+     * Unblock an address range that was added before.
+     *
+     * @param address      the address
+     * @param prefixLength the prefix length
+     */
+    public void remove(InetAddress address, int prefixLength) {
+        update(trie -> trie.remove(address.getAddress(), prefixLength));
+    }
+
+    /**
+     * Apply changes and publish the result as one snapshot.
+     *
+     * @param changes the changes
+     */
+    public synchronized void update(UnaryOperator<AddressTrie> changes) {
+        this.trie = changes.apply(trie);
+    }
+
+    /**
+     * @return the current snapshot.
+     */
+    public AddressTrie snapshot() {
+        return trie;
+    }
+
+    /**
+     * @return amount of blocked ranges.
+     */
+    public int size() {
+        return trie.size();
+    }
+
+}
@@ -0,0 +1,232 @@
+package org.crimson.v3.utility;
+
+import java.net.InetAddress;
+
+/**
+ * An immutable, compressed binary radix trie of IPv4 and IPv6 prefixes.
+ * <p>
+ * Each node holds a whole prefix, so a path only branches where stored prefixes differ.
+ * A lookup walks at most one node per branch and stops at the first stored prefix covering the address.
+ * Adding and removing copy only the nodes along one path, every other node is shared with the previous trie.
+ */
+public final class AddressTrie {
+
+    /**
+     * An empty trie.
+     */
+    public static final AddressTrie EMPTY = new AddressTrie(null, null, 0);
+
+    /**
+     * Roots for 4 and 16 byte addresses.
+     */
+    private final Node v4, v6;
+
+    /**
+     * Amount of stored prefixes.
+     */
+    private final int size;
+
+    private AddressTrie(Node v4, Node v6, int size) {
+        this.v4 = v4;
+        this.v6 = v6;
+        this.size = size;
+    }
+
+    /**
+     * Check if an address is within any stored prefix.
+     *
+     * @param address the address
+     * @return {@code true} if so
+     */
+    public boolean contains(InetAddress address) {
+        return contains(address.getAddress());
+    }
+
+    /**
+     * Check if an address is within any stored prefix.
+     *
+     * @param address the address bytes, 4 or 16.
+     * @return {@code true} if so
+     */
+    public boolean contains(byte[] address) {
+        Node node = address.length == 4 ? v4 : v6;
+        final int bits = address.length * 8;
+
+        while (node != null) {
+            if (!matches(node.key, address, node.length)) return false;
+            if (node.terminal) return true;
+            if (node.length == bits) return false;
+            node = bit(address, node.length) ? node.one : node.zero;
+        }
+        return false;
+    }
+
+    /**
+     * Add a prefix.
+     *
+     * @param address      the address
+     * @param prefixLength the prefix length
+     * @return a trie with the prefix added.
+     */
+    public AddressTrie add(byte[] address, int prefixLength) {
+        final byte[] key = mask(address, checkPrefix(address, prefixLength));
+        final boolean v4 = address.length == 4;
+
+        final Node root = v4 ? this.v4 : this.v6;
+        if (find(root, key, prefixLength)) return this;
+
+        final Node added = insert(root, key, prefixLength);
+        return v4 ? new AddressTrie(added, v6, size + 1) : new AddressTrie(this.v4, added, size + 1);
+    }
+
+    /**
+     * Remove a prefix that was added before, ranges covering it are not affected.
+     *
+     * @param address      the address
+     * @param prefixLength the prefix length
+     * @return a trie without the prefix.
+     */
+    public AddressTrie remove(byte[] address, int prefixLength) {
+        final byte[] key = mask(address, checkPrefix(address, prefixLength));
+        final boolean v4 = address.length == 4;
+
+        final Node root = v4 ? this.v4 : this.v6;
+        if (!find(root, key, prefixLength)) return this;
+
+        final Node removed = delete(root, key, prefixLength);
+        return v4 ? new AddressTrie(removed, v6, size - 1) : new AddressTrie(this.v4, removed, size - 1);
+    }
+
+    /**
+     * @return amount of stored prefixes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if exactly this prefix is stored.
+     */
+    private static boolean find(Node node, byte[] key, int length) {
+        while (node != null && node.length <= length && matches(node.key, key, node.length)) {
+            if (node.length == length) return node.terminal;
+            node = bit(key, node.length) ? node.one : node.zero;
+        }
+        return false;
+    }
+
+    /**
+     * Insert a prefix, copying the path to it.
+     */
+    private static Node insert(Node node, byte[] key, int length) {
+        if (node == null) return new Node(key, length, true, null, null);
+
+        final int common = commonLength(node.key, key, Math.min(node.length, length));
+        if (common == node.length && common == length) {
+            return new Node(node.key, node.length, true, node.zero, node.one);
+        } else if (common == node.length) {
+            // the node is a prefix of the key, descend.
+            return bit(key, common)
+                    ? new Node(node.key, node.length, node.terminal, node.zero, insert(node.one, key, length))
+                    : new Node(node.key, node.length, node.terminal, insert(node.zero, key, length), node.one);
+        } else if (common == length) {
+            // the key is a prefix of the node.
+            return bit(node.key, common)
+                    ? new Node(key, length, true, null, node)
+                    : new Node(key, length, true, node, null);
+        }
+
+        // branch where they differ.
+        final Node leaf = new Node(key, length, true, null, null);
+        final byte[] prefix = mask(key, common);
+        return bit(key, common)
+                ? new Node(prefix, common, false, node, leaf)
+                : new Node(prefix, common, false, leaf, node);
+    }
+
+    /**
+     * Delete a stored prefix, copying the path to it and merging nodes left with a single child.
+     */
+    private static Node delete(Node node, byte[] key, int length) {
+        if (node.length == length) return compact(node.key, node.length, false, node.zero, node.one);
+
+        return bit(key, node.length)
+                ? compact(node.key, node.length, node.terminal, node.zero, delete(node.one, key, length))
+                : compact(node.key, node.length, node.terminal, delete(node.zero, key, length), node.one);
+    }
+
+    /**
+     * Create a node, or drop it if it is no longer needed.
+     */
+    private static Node compact(byte[] key, int length, boolean terminal, Node zero, Node one) {
+        if (terminal) return new Node(key, length, true, zero, one);
+        if (zero == null) return one;
+        if (one == null) return zero;
+        return new Node(key, length, false, zero, one);
+    }
+
+    /**
+     * @return {@code true} if the first {@code length} bits of both are equal.
+     */
+    private static boolean matches(byte[] key, byte[] address, int length) {
+        final int bytes = length >>> 3;
+        for (int i = 0; i < bytes; i++) {
+            if (key[i] != address[i]) return false;
+        }
+
+        final int remaining = length & 7;
+        if (remaining == 0) return true;
+        final int mask = 0xFF << (8 - remaining);
+        return ((key[bytes] ^ address[bytes]) & mask) == 0;
+    }
+
+    /**
+     * @return amount of equal leading bits, at most {@code limit}.
+     */
+    private static int commonLength(byte[] a, byte[] b, int limit) {
+        for (int i = 0; i < a.length; i++) {
+            final int difference = (a[i] ^ b[i]) & 0xFF;
+            if (difference != 0) return Math.min(limit, i * 8 + Integer.numberOfLeadingZeros(difference) - 24);
+        }
+        return limit;
+    }
+
+    /**
+     * @return the bit at {@code index}, counting from the most significant.
+     */
+    private static boolean bit(byte[] address, int index) {
+        return (address[index >>> 3] & (0x80 >>> (index & 7))) != 0;
+    }
+
+    /**
+     * @return a copy with every bit past {@code length} cleared.
+     */
+    private static byte[] mask(byte[] address, int length) {
+        final byte[] masked = address.clone();
+        for (int i = 0; i < masked.length; i++) {
+            final int remaining = length - i * 8;
+            if (remaining >= 8) continue;
+            masked[i] &= remaining <= 0 ? 0 : (byte) (0xFF << (8 - remaining));
+        }
+        return masked;
+    }
+
+    private static int checkPrefix(byte[] address, int prefixLength) {
+        if (address.length != 4 && address.length != 16) throw new IllegalArgumentException("Invalid address length " + address.length);
+        if (prefixLength < 0 || prefixLength > address.length * 8) throw new IllegalArgumentException("Invalid prefix length " + prefixLength);
+        return prefixLength;
+    }
+
+    /**
+     * A prefix within the trie.
+     *
+     * @param key      the prefix, bits past {@code length} are zero.
+     * @param length   the prefix length
+     * @param terminal if this prefix is stored, otherwise it only branches.
+     * @param zero     the child where the next bit is 0.
+     * @param one      the child where the next bit is 1.
+     */
+    private record Node(byte[] key, int length, boolean terminal, Node zero, Node one) {
+    }
+
+}
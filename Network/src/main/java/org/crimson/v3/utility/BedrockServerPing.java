@@ -1,11 +1,14 @@
 package org.crimson.v3.utility;
 
 import java.nio.charset.StandardCharsets;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Objects;
 
 /**
  * Represents a ping or MOTD response for a client.
  * <p>
+ * Setters may be called from any thread, they only mark the response as changed.
+ * {@link #refresh()} encodes a new immutable response, reading it with {@link #getResponse()} never locks.
+ * <p>
  * Edition (MCPE or MCEE for Education Edition);MOTD line 1;Protocol Version;Version Name;Player Count;Max Player Count;Server Unique ID;MOTD line 2;Game mode;Game mode (numeric);Port (IPv4);Port (IPv6);
  */
 public final class BedrockServerPing {
@@ -34,9 +37,14 @@ public final class BedrockServerPing {
     private long guid;
 
     /**
-     * The current cached response.
+     * The current encoded response, never modified once published.
      */
-    private final AtomicReference<byte[]> response = new AtomicReference<>();
+    private volatile byte[] response;
+
+    /**
+     * If a value changed since the last refresh.
+     */
+    private boolean changed = true;
 
     /**
      * String builder
@@ -49,7 +57,8 @@ public final class BedrockServerPing {
      * @param edition the edition
      * @return this
      */
-    public BedrockServerPing edition(String edition) {
+    public synchronized BedrockServerPing edition(String edition) {
+        this.changed |= !Objects.equals(this.edition, edition);
         this.edition = edition;
         return this;
     }
@@ -60,7 +69,8 @@ public final class BedrockServerPing {
      * @param motd the motd
      * @return this
      */
-    public BedrockServerPing motd(String motd) {
+    public synchronized BedrockServerPing motd(String motd) {
+        this.changed |= !Objects.equals(this.motd, motd);
         this.motd = motd;
         return this;
     }
@@ -71,7 +81,8 @@ public final class BedrockServerPing {
      * @param versionName the name
      * @return this
      */
-    public BedrockServerPing versionName(String versionName) {
+    public synchronized BedrockServerPing versionName(String versionName) {
+        this.changed |= !Objects.equals(this.versionName, versionName);
         this.versionName = versionName;
         return this;
     }
@@ -82,7 +93,8 @@ public final class BedrockServerPing {
      * @param subMotd subMotd
      * @return this
      */
-    public BedrockServerPing subMotd(String subMotd) {
+    public synchronized BedrockServerPing subMotd(String subMotd) {
+        this.changed |= !Objects.equals(this.subMotd, subMotd);
         this.subMotd = subMotd;
         return this;
     }
@@ -93,7 +105,8 @@ public final class BedrockServerPing {
      * @param gameMode the gameMode
      * @return this
      */
-    public BedrockServerPing gameMode(String gameMode) {
+    public synchronized BedrockServerPing gameMode(String gameMode) {
+        this.changed |= !Objects.equals(this.gameMode, gameMode);
         this.gameMode = gameMode;
         return this;
     }
@@ -104,7 +117,8 @@ public final class BedrockServerPing {
      * @param protocolVersion protocolVersion
      * @return this
      */
-    public BedrockServerPing protocolVersion(int protocolVersion) {
+    public synchronized BedrockServerPing protocolVersion(int protocolVersion) {
+        this.changed |= this.protocolVersion != protocolVersion;
         this.protocolVersion = protocolVersion;
         return this;
     }
@@ -115,7 +129,8 @@ public final class BedrockServerPing {
      * @param playerCount the player count
      * @return this
      */
-    public BedrockServerPing playerCount(int playerCount) {
+    public synchronized BedrockServerPing playerCount(int playerCount) {
+        this.changed |= this.playerCount != playerCount;
         this.playerCount = playerCount;
         return this;
     }
@@ -126,7 +141,8 @@ public final class BedrockServerPing {
      * @param maxPlayerCount max player count
      * @return this
      */
-    public BedrockServerPing maxPlayerCount(int maxPlayerCount) {
+    public synchronized BedrockServerPing maxPlayerCount(int maxPlayerCount) {
+        this.changed |= this.maxPlayerCount != maxPlayerCount;
         this.maxPlayerCount = maxPlayerCount;
         return this;
     }
@@ -137,7 +153,8 @@ public final class BedrockServerPing {
      * @param gameModeNumber number
      * @return this
      */
-    public BedrockServerPing gameModeNumber(int gameModeNumber) {
+    public synchronized BedrockServerPing gameModeNumber(int gameModeNumber) {
+        this.changed |= this.gameModeNumber != gameModeNumber;
         this.gameModeNumber = gameModeNumber;
         return this;
     }
@@ -148,7 +165,8 @@ public final class BedrockServerPing {
      * @param portV4 v4
      * @return this
      */
-    public BedrockServerPing portV4(int portV4) {
+    public synchronized BedrockServerPing portV4(int portV4) {
+        this.changed |= this.portV4 != portV4;
         this.portV4 = portV4;
         return this;
     }
@@ -159,7 +177,8 @@ public final class BedrockServerPing {
      * @param portV6 v6
      * @return this
      */
-    public BedrockServerPing portV6(int portV6) {
+    public synchronized BedrockServerPing portV6(int portV6) {
+        this.changed |= this.portV6 != portV6;
         this.portV6 = portV6;
         return this;
     }
@@ -170,7 +189,8 @@ public final class BedrockServerPing {
      * @param guid guid
      * @return this
      */
-    public BedrockServerPing guid(long guid) {
+    public synchronized BedrockServerPing guid(long guid) {
+        this.changed |= this.guid != guid;
         this.guid = guid;
         return this;
     }
@@ -178,16 +198,28 @@ public final class BedrockServerPing {
     /**
      * Retrieve the ping response
      *
-     * @return the response as bytes.
+     * @return the response as bytes, which must not be modified.
      */
     public byte[] getResponse() {
-        return response.get();
+        return response;
+    }
+
+    /**
+     * Refresh the ping response if a value changed since the last refresh.
+     *
+     * @return {@code true} if it was refreshed.
+     */
+    public synchronized boolean refreshIfChanged() {
+        if (!changed) return false;
+        refresh();
+        return true;
     }
 
     /**
      * Refresh the ping response.
      */
-    public void refresh() {
+    public synchronized void refresh() {
+        changed = false;
         builder.setLength(0);
 
         append(edition);
@@ -203,7 +235,7 @@ public final class BedrockServerPing {
         append(portV4);
         append(portV6);
 
-        response.set(builder.toString().getBytes(StandardCharsets.UTF_8));
+        response = builder.toString().getBytes(StandardCharsets.UTF_8);
     }
 
     /**
@@ -0,0 +1,144 @@
+package org.crimson.v3.utility;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, array backed single-producer single-consumer queue.
+ * <p>
+ * Hands messages between a session event loop and the main server thread.
+ * Neither side takes a lock or allocates per element, and each side only writes its own index.
+ * Only one thread may ever call {@link #offer(Object)} and only one thread may ever call {@link #poll()} or {@link #drain(Consumer, int)}.
+ *
+ * @param <E> the element type
+ */
+public final class SpscArrayQueue<E> {
+
+    /**
+     * The elements.
+     */
+    private final AtomicReferenceArray<E> buffer;
+
+    /**
+     * Capacity and index mask.
+     */
+    private final int capacity, mask;
+
+    /**
+     * Next slot to be written, only written by the producer.
+     */
+    private final AtomicLong producerIndex = new AtomicLong();
+
+    /**
+     * Next slot to be consumed, only written by the consumer.
+     */
+    private final AtomicLong consumerIndex = new AtomicLong();
+
+    /**
+     * The producers view of the consumer index, so it rarely reads the consumers index.
+     */
+    private long producerLimit;
+
+    /**
+     * Initialize
+     *
+     * @param capacity the capacity, rounded up to a power of two.
+     */
+    public SpscArrayQueue(int capacity) {
+        if (capacity < 2) throw new IllegalArgumentException("Capacity must be at least 2.");
+
+        this.capacity = 1 << (32 - Integer.numberOfLeadingZeros(capacity - 1));
+        this.mask = this.capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(this.capacity);
+    }
+
+    /**
+     * Add an element, only from the producer thread.
+     *
+     * @param element the element
+     * @return {@code false} if the queue is full.
+     */
+    public boolean offer(E element) {
+        Objects.requireNonNull(element);
+
+        final long index = producerIndex.get();
+        if (index >= producerLimit) {
+            producerLimit = consumerIndex.get() + capacity;
+            if (index >= producerLimit) return false;
+        }
+
+        buffer.lazySet((int) index & mask, element);
+        producerIndex.lazySet(index + 1);
+        return true;
+    }
+
+    /**
+     * Remove the next element, only from the consumer thread.
+     *
+     * @return the element or {@code null} if empty.
+     */
+    public E poll() {
+        final long index = consumerIndex.get();
+        final int offset = (int) index & mask;
+
+        final E element = buffer.get(offset);
+        if (element == null) return null;
+
+        buffer.lazySet(offset, null);
+        consumerIndex.lazySet(index + 1);
+        return element;
+    }
+
+    /**
+     * Remove up to {@code limit} elements, only from the consumer thread.
+     * <p>
+     * The consumer index is published once, after every element was taken, even if {@code consumer} throws.
+     *
+     * @param consumer receives each element
+     * @param limit    the most elements to remove
+     * @return the amount of elements removed.
+     */
+    public int drain(Consumer<? super E> consumer, int limit) {
+        final long start = consumerIndex.get();
+
+        int drained = 0;
+        try {
+            while (drained < limit) {
+                final int offset = (int) (start + drained) & mask;
+                final E element = buffer.get(offset);
+                if (element == null) break;
+
+                buffer.lazySet(offset, null);
+                drained++;
+                consumer.accept(element);
+            }
+        } finally {
+            if (drained > 0) consumerIndex.lazySet(start + drained);
+        }
+        return drained;
+    }
+
+    /**
+     * @return {@code true} if no element is waiting, only exact from the consumer thread.
+     */
+    public boolean isEmpty() {
+        return buffer.get((int) consumerIndex.get() & mask) == null;
+    }
+
+    /**
+     * @return the approximate amount of elements.
+     */
+    public int size() {
+        return (int) Math.max(0L, producerIndex.get() - consumerIndex.get());
+    }
+
+    /**
+     * @return the capacity
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+}
@@ -0,0 +1,90 @@
+package org.crimson.benchmark;
+
+import org.crimson.punishment.BanList;
+import org.crimson.punishment.BanListByIP;
+import org.crimson.punishment.BanListByName;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ban list lookups, both hits and misses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BanListBenchmark {
+
+    /**
+     * Amount of bans within each list.
+     */
+    @Param({"100", "100000"})
+    public int bans;
+
+    private BanList names;
+    private BanListByIP addresses;
+
+    private String bannedName;
+    private String bannedAddress;
+    private InetAddress bannedInetAddress;
+    private InetAddress rangeInetAddress;
+
+    @Setup
+    public void setup() throws UnknownHostException {
+        names = new BanListByName();
+        addresses = new BanListByIP();
+
+        for (int i = 0; i < bans; i++) {
+            names.addBan("Player" + i, null, "Benchmark", null);
+            addresses.addBan(null, address(i), "Benchmark", null);
+        }
+
+        bannedName = "Player" + (bans / 2);
+        bannedAddress = address(bans / 2);
+        addresses.addBan(null, "172.16.0.0/12", "Benchmark", null);
+
+        bannedInetAddress = InetAddress.getByName(bannedAddress);
+        rangeInetAddress = InetAddress.getByName("172.20.1.1");
+    }
+
+    @Benchmark
+    public boolean nameHit() {
+        return names.isBanned(bannedName);
+    }
+
+    @Benchmark
+    public boolean nameMiss() {
+        return names.isBanned("NotBanned");
+    }
+
+    @Benchmark
+    public boolean addressHit() {
+        return addresses.isBanned(bannedAddress);
+    }
+
+    @Benchmark
+    public boolean addressMiss() {
+        return addresses.isBanned("192.168.1.1");
+    }
+
+    @Benchmark
+    public boolean inetAddressHit() {
+        return addresses.isBanned(bannedInetAddress);
+    }
+
+    @Benchmark
+    public boolean inetAddressRangeHit() {
+        return addresses.isBanned(rangeInetAddress);
+    }
+
+    /**
+     * @param index the ban index
+     * @return a unique address within 10.0.0.0/8
+     */
+    private static String address(int index) {
+        return "10." + ((index >>> 16) & 0xFF) + "." + ((index >>> 8) & 0xFF) + "." + (index & 0xFF);
+    }
+
+}
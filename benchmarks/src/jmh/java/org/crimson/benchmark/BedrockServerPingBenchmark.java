@@ -0,0 +1,36 @@
+package org.crimson.benchmark;
+
+import org.crimson.v3.utility.BedrockServerPing;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebuilding the MOTD response with {@link BedrockServerPing#refresh()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BedrockServerPingBenchmark {
+
+    private BedrockServerPing ping;
+    private int playerCount;
+
+    @Setup
+    public void setup() {
+        ping = BenchmarkPackets.newServerPing();
+    }
+
+    @Benchmark
+    public byte[] refresh() {
+        ping.playerCount(playerCount++ & 0xFF);
+        ping.refresh();
+        return ping.getResponse();
+    }
+
+    @Benchmark
+    public byte[] getResponse() {
+        return ping.getResponse();
+    }
+
+}
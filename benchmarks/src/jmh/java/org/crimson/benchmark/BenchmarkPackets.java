@@ -0,0 +1,130 @@
+package org.crimson.benchmark;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.crimson.v3.RakNetServer;
+import org.crimson.v3.raknet.RakNetProtocol;
+import org.crimson.v3.raknet.reliability.RakNetReliability;
+import org.crimson.v3.utility.BedrockServerPing;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Builds the raw packets and server instances shared between benchmarks.
+ */
+final class BenchmarkPackets {
+
+    /**
+     * The address the benchmark server pretends to be bound to.
+     */
+    static final InetSocketAddress SERVER_ADDRESS = new InetSocketAddress("127.0.0.1", 19132);
+
+    /**
+     * Default client address.
+     */
+    static final InetSocketAddress CLIENT_ADDRESS = new InetSocketAddress("127.0.0.1", 50000);
+
+    private BenchmarkPackets() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return a ping that resembles what {@code CrimsonServerEventHandler} creates.
+     */
+    static BedrockServerPing newServerPing() {
+        final BedrockServerPing ping = new BedrockServerPing()
+                .edition("MCPE")
+                .motd("A Crimson server.")
+                .protocolVersion(440)
+                .versionName("1.17.0")
+                .playerCount(0)
+                .maxPlayerCount(20)
+                .subMotd("A Crimson server!")
+                .gameMode("Survival")
+                .gameModeNumber(1)
+                .portV4(19132)
+                .portV6(19133);
+        ping.refresh();
+        return ping;
+    }
+
+    /**
+     * Create a server that is never bound, only used for encoding replies.
+     *
+     * @return the server
+     */
+    static RakNetServer newServer() {
+        final BedrockServerPing ping = newServerPing();
+        return new RakNetServer(SERVER_ADDRESS, () -> ping);
+    }
+
+    /**
+     * Create an unconnected ping.
+     *
+     * @return the packet contents
+     */
+    static byte[] unconnectedPing() {
+        final ByteBuf buffer = Unpooled.buffer();
+        buffer.writeByte(RakNetProtocol.UNCONNECTED_PING);
+        buffer.writeLong(System.currentTimeMillis());
+        buffer.writeBytes(RakNetProtocol.MAGIC);
+        buffer.writeLong(1L);
+        return toArray(buffer);
+    }
+
+    /**
+     * Create the first open connection request.
+     *
+     * @param protocolVersion the RakNet protocol version
+     * @param mtu             the MTU the request is padded to
+     * @return the packet contents
+     */
+    static byte[] openConnectionRequest1(int protocolVersion, int mtu) {
+        final ByteBuf buffer = Unpooled.buffer(mtu);
+        buffer.writeByte(RakNetProtocol.OPEN_CONNECTION_REQUEST_1);
+        buffer.writeBytes(RakNetProtocol.MAGIC);
+        buffer.writeByte(protocolVersion);
+        // padding, minus the IP and UDP headers.
+        buffer.writeZero(Math.max(0, mtu - buffer.writerIndex() - 20 - RakNetProtocol.UDP_HEADER_SIZE));
+        return toArray(buffer);
+    }
+
+    /**
+     * Create a datagram holding {@code count} encapsulated packets.
+     *
+     * @param count       the amount of packets
+     * @param payloadSize the size of each payload, including the packet ID.
+     * @return the datagram contents
+     */
+    static byte[] datagram(int count, int payloadSize) {
+        final ByteBuf buffer = Unpooled.buffer();
+        buffer.writeByte(RakNetProtocol.VALID);
+        buffer.writeMediumLE(0);
+
+        for (int i = 0; i < count; i++) {
+            buffer.writeByte(RakNetReliability.RELIABLE.ordinal() << 5);
+            buffer.writeShort(payloadSize << 3);
+            buffer.writeMediumLE(i);
+            buffer.writeByte(RakNetProtocol.CONNECTION_REQUEST);
+            buffer.writeZero(payloadSize - 1);
+        }
+        return toArray(buffer);
+    }
+
+    /**
+     * Copy the readable bytes of a buffer and release it.
+     *
+     * @param buffer the buffer
+     * @return the bytes
+     */
+    private static byte[] toArray(ByteBuf buffer) {
+        try {
+            final byte[] bytes = new byte[buffer.readableBytes()];
+            buffer.readBytes(bytes);
+            return bytes;
+        } finally {
+            buffer.release();
+        }
+    }
+
+}
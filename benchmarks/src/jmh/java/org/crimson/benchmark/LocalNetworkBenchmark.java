@@ -0,0 +1,50 @@
+package org.crimson.benchmark;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.crimson.v3.raknet.RakNetProtocol;
+import org.crimson.v3.utility.LocalNetwork;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading addresses with {@link LocalNetwork#readAddress(ByteBuf)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LocalNetworkBenchmark {
+
+    private ByteBuf addressV4;
+    private ByteBuf addressV6;
+
+    @Setup
+    public void setup() {
+        addressV4 = Unpooled.buffer();
+        RakNetProtocol.writeAddress(RakNetProtocol.LOOPBACK_V4, addressV4);
+
+        addressV6 = Unpooled.buffer();
+        RakNetProtocol.writeAddress(RakNetProtocol.LOOPBACK_V6, addressV6);
+    }
+
+    @TearDown
+    public void tearDown() {
+        addressV4.release();
+        addressV6.release();
+    }
+
+    @Benchmark
+    public InetSocketAddress readAddressV4() {
+        addressV4.readerIndex(0);
+        return LocalNetwork.readAddress(addressV4);
+    }
+
+    @Benchmark
+    public InetSocketAddress readAddressV6() {
+        addressV6.readerIndex(0);
+        return LocalNetwork.readAddress(addressV6);
+    }
+
+}
@@ -0,0 +1,78 @@
+package org.crimson.benchmark;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ResourceLeakDetector;
+import org.crimson.v3.netty.pipeline.codec.RakDatagramDecoder;
+import org.crimson.v3.netty.pipeline.codec.RakMessageDecoder;
+import org.crimson.v3.raknet.packet.RakNetDatagram;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link RakDatagramDecoder} and {@link RakMessageDecoder}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RakCodecBenchmark {
+
+    /**
+     * Amount of encapsulated packets per datagram.
+     */
+    @Param({"1", "8"})
+    public int packets;
+
+    /**
+     * Size of each encapsulated payload.
+     */
+    @Param({"32", "512"})
+    public int payloadSize;
+
+    private byte[] datagram;
+    private EmbeddedChannel channel;
+
+    @Setup
+    public void setup() {
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.DISABLED);
+
+        datagram = BenchmarkPackets.datagram(packets, payloadSize);
+        channel = new EmbeddedChannel(RakDatagramDecoder.INSTANCE, RakMessageDecoder.INSTANCE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    /**
+     * Decode a datagram through both decoders, like the session pipeline does.
+     */
+    @Benchmark
+    public void decodePipeline(Blackhole blackhole) {
+        channel.writeInbound(Unpooled.wrappedBuffer(datagram));
+
+        Object message;
+        while ((message = channel.readInbound()) != null) {
+            blackhole.consume(message);
+        }
+    }
+
+    /**
+     * Decode a datagram directly, without the pipeline.
+     */
+    @Benchmark
+    public RakNetDatagram decodeDatagram() {
+        final ByteBuf content = Unpooled.wrappedBuffer(datagram);
+        content.skipBytes(1);
+
+        final RakNetDatagram decoded = new RakNetDatagram();
+        decoded.decode(content);
+        decoded.release();
+        return decoded;
+    }
+
+}
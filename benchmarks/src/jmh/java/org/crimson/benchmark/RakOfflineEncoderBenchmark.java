@@ -0,0 +1,61 @@
+package org.crimson.benchmark;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.crimson.v3.raknet.RakNetProtocol;
+import org.crimson.v3.raknet.offline.DefaultRakOfflineEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reply encoding within {@link DefaultRakOfflineEncoder}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RakOfflineEncoderBenchmark {
+
+    private DefaultRakOfflineEncoder encoder;
+    private EmbeddedChannel channel;
+    private ChannelHandlerContext context;
+
+    @Setup
+    public void setup() {
+        encoder = new DefaultRakOfflineEncoder(BenchmarkPackets.newServer());
+        channel = new EmbeddedChannel();
+        channel.pipeline().addLast("context", new ChannelInboundHandlerAdapter());
+        context = channel.pipeline().context("context");
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public void unconnectedPong() {
+        encoder.sendUnconnectedPong(context, BenchmarkPackets.CLIENT_ADDRESS, 1L);
+        channel.releaseOutbound();
+    }
+
+    @Benchmark
+    public void openConnectionReply1() {
+        encoder.sendOpenConnectionReply1(context, BenchmarkPackets.CLIENT_ADDRESS, 1400);
+        channel.releaseOutbound();
+    }
+
+    @Benchmark
+    public void incompatibleProtocol() {
+        encoder.sendIncompatibleProtocol(context, BenchmarkPackets.CLIENT_ADDRESS, RakNetProtocol.PROTOCOL_VERSION);
+        channel.releaseOutbound();
+    }
+
+    @Benchmark
+    public void connectionBanned() {
+        encoder.sendConnectionBanned(context, BenchmarkPackets.CLIENT_ADDRESS);
+        channel.releaseOutbound();
+    }
+
+}
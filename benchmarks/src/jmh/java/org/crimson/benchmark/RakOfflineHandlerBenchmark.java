@@ -0,0 +1,103 @@
+package org.crimson.benchmark;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.ResourceLeakDetector;
+import org.crimson.v3.RakNetServer;
+import org.crimson.v3.netty.pipeline.offline.RakOfflineHandler;
+import org.crimson.v3.raknet.RakNetProtocol;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ping and handshake handling within {@link RakOfflineHandler}.
+ * <p>
+ * Replies are encoded and then discarded by the {@link EmbeddedChannel}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RakOfflineHandlerBenchmark {
+
+    private final byte[] address = new byte[]{10, 0, 0, 0};
+
+    private RakNetServer server;
+    private EmbeddedChannel channel;
+
+    private byte[] ping;
+    private byte[] openConnectionRequest1;
+    private byte[] incompatibleRequest1;
+
+    /**
+     * Used to generate unique senders for each handshake.
+     */
+    private int sender;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.DISABLED);
+
+        server = BenchmarkPackets.newServer();
+        ping = BenchmarkPackets.unconnectedPing();
+        openConnectionRequest1 = BenchmarkPackets.openConnectionRequest1(RakNetProtocol.PROTOCOL_VERSION, 1400);
+        incompatibleRequest1 = BenchmarkPackets.openConnectionRequest1(RakNetProtocol.PROTOCOL_VERSION - 1, 1400);
+    }
+
+    /**
+     * A new handler each iteration so pending connections do not pile up between iterations.
+     */
+    @Setup(Level.Iteration)
+    public void setupIteration() {
+        channel = new EmbeddedChannel(new RakOfflineHandler(server));
+        sender = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownIteration() {
+        channel.finishAndReleaseAll();
+    }
+
+    /**
+     * Unconnected ping to pong.
+     */
+    @Benchmark
+    public void unconnectedPing() {
+        channel.writeInbound(new DatagramPacket(Unpooled.wrappedBuffer(ping), BenchmarkPackets.SERVER_ADDRESS, BenchmarkPackets.CLIENT_ADDRESS));
+        channel.releaseOutbound();
+    }
+
+    /**
+     * The first open connection request from a new sender, this includes creating the pending connection.
+     */
+    @Benchmark
+    public void openConnectionRequest1() throws UnknownHostException {
+        channel.writeInbound(new DatagramPacket(Unpooled.wrappedBuffer(openConnectionRequest1), BenchmarkPackets.SERVER_ADDRESS, nextSender()));
+        channel.releaseOutbound();
+    }
+
+    /**
+     * The first open connection request with the wrong protocol, no state is created.
+     */
+    @Benchmark
+    public void openConnectionRequest1Incompatible() {
+        channel.writeInbound(new DatagramPacket(Unpooled.wrappedBuffer(incompatibleRequest1), BenchmarkPackets.SERVER_ADDRESS, BenchmarkPackets.CLIENT_ADDRESS));
+        channel.releaseOutbound();
+    }
+
+    /**
+     * @return a sender that has not been seen by the handler before.
+     */
+    private InetSocketAddress nextSender() throws UnknownHostException {
+        final int next = sender++;
+        address[1] = (byte) (next >>> 24);
+        address[2] = (byte) (next >>> 16);
+        address[3] = (byte) (next >>> 8);
+        return new InetSocketAddress(InetAddress.getByAddress(address), 1024 + (next & 0xFF));
+    }
+
+}
@@ -0,0 +1,18 @@
+@echo off
+rem Start Crimson in the current directory.
+rem Uses the runtime image and class archive when they were built with: gradle cdsArchive
+setlocal
+set ROOT=%~dp0..
+for %%I in ("%ROOT%") do set ROOT=%%~fI
+set JAR=%ROOT%\build\libs\Crimson-1.0-SNAPSHOT-all.jar
+set ARCHIVE=%ROOT%\build\cds\crimson.jsa
+
+set JAVA=java
+set CDS=
+if exist "%ROOT%\build\image\bin\java.exe" (
+    set JAVA=%ROOT%\build\image\bin\java.exe
+    rem the archive only matches the runtime image it was trained with.
+    if exist "%ARCHIVE%" set CDS=-XX:SharedArchiveFile="%ARCHIVE%"
+)
+
+"%JAVA%" %CDS% %JAVA_OPTS% -jar "%JAR%" %*
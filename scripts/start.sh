@@ -0,0 +1,15 @@
+#!/bin/sh
+# Start Crimson in the current directory.
+# Uses the runtime image and class archive when they were built with: gradle cdsArchive
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+JAR="$ROOT/build/libs/Crimson-1.0-SNAPSHOT-all.jar"
+ARCHIVE="$ROOT/build/cds/crimson.jsa"
+
+JAVA="$ROOT/build/image/bin/java"
+[ -x "$JAVA" ] || JAVA=java
+
+# the archive only matches the runtime image it was trained with.
+CDS=""
+[ -f "$ARCHIVE" ] && [ "$JAVA" != java ] && CDS="-XX:SharedArchiveFile=$ARCHIVE"
+
+exec "$JAVA" $CDS $JAVA_OPTS -jar "$JAR" "$@"
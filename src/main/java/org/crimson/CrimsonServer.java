@@ -10,16 +10,30 @@ import org.crimson.network.CrimsonNetwork;
 import org.crimson.network.Network;
 import org.crimson.network.event.CrimsonServerEventHandler;
 import org.crimson.properties.CrimsonServerProperties;
+import org.crimson.properties.DefaultServerProperties;
 import org.crimson.properties.ServerPropertiesConfiguration;
+import org.crimson.punishment.BanExpiryQueue;
+import org.crimson.punishment.BanJournal;
 import org.crimson.punishment.BanList;
 import org.crimson.punishment.BanListByIP;
 import org.crimson.punishment.BanListByName;
 import org.crimson.punishment.BanListType;
-
+import org.crimson.punishment.SharedBanList;
+import org.crimson.scheduler.AsyncExecutor;
+import org.crimson.scheduler.CrimsonAsyncExecutor;
+import org.crimson.scheduler.CrimsonScheduler;
+import org.crimson.scheduler.ServerTask;
+import org.crimson.startup.StartupGraph;
+import org.crimson.tick.ServerTickLoop;
+
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.file.Path;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 /**
  * The base server
@@ -32,6 +46,11 @@ final class CrimsonServer implements Server {
      */
     private static final String VERSION = "0.1.1-81221";
 
+    /**
+     * System property that stops the server right after startup, for training runs.
+     */
+    static final String EXIT_AFTER_STARTUP = "crimson.exitAfterStartup";
+
     /**
      * Current path of this server
      */
@@ -40,22 +59,42 @@ final class CrimsonServer implements Server {
     /**
      * The server.properties file configuration.
      */
-    private final ServerPropertiesConfiguration serverProperties = new CrimsonServerProperties();
+    private final CrimsonServerProperties serverProperties = new CrimsonServerProperties();
 
     /**
      * Constant array of ban-lists.
      */
     private final BanList[] banLists = new BanList[2];
 
+    /**
+     * Expires temporary bans of both ban-lists.
+     */
+    private final BanExpiryQueue banExpiry = new BanExpiryQueue();
+
+    /**
+     * Stores bans on disk, {@code null} if the shared ban tables are used.
+     */
+    private BanJournal banJournal;
+
     /**
      * Running status
      */
     private final AtomicBoolean running = new AtomicBoolean(true);
 
     /**
-     * List of pending server tasks.
+     * Main thread task scheduler.
      */
-    private final ConcurrentLinkedQueue<Runnable> pendingServerTasks = new ConcurrentLinkedQueue<>();
+    private final CrimsonScheduler scheduler;
+
+    /**
+     * Blocking work on virtual threads.
+     */
+    private final CrimsonAsyncExecutor async;
+
+    /**
+     * Runs the main tick.
+     */
+    private final ServerTickLoop tickLoop = new ServerTickLoop();
 
     /**
      * The RakNet server
@@ -78,36 +117,45 @@ final class CrimsonServer implements Server {
      */
     private volatile boolean isStopping;
 
+    /**
+     * Released once shutting down finished.
+     */
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    /**
+     * How long the shutdown hook waits for the main thread to shut down.
+     */
+    private static final long SHUTDOWN_HOOK_TIMEOUT_SECONDS = 30;
+
     public CrimsonServer() {
         log.info("Starting Crimson server version " + VERSION);
         Crimson.setServer(this);
 
         this.currentThread = Thread.currentThread();
-
-        if (!loadServerProperties()) {
-            shutdown();
-            return;
-        }
+        this.scheduler = new CrimsonScheduler(currentThread);
+        this.async = new CrimsonAsyncExecutor(scheduler);
 
         // track how long server startup took.
         final long now = System.currentTimeMillis();
-        loadPlayerBans();
 
-        network = new CrimsonNetwork(new InetSocketAddress("127.0.0.1", 19132), new CrimsonServerEventHandler(this));
-        if (!network.bind()) {
-            shutdown();
+        final StartupGraph startup = new StartupGraph(async)
+                .phase("properties", this::loadServerProperties)
+                .phase("commands", this::loadServerCommands)
+                .phase("bans", this::loadPlayerBans, "properties")
+                .phase("transport", () -> network = new CrimsonNetwork(new InetSocketAddress("127.0.0.1", 19132), new CrimsonServerEventHandler(this)), "properties")
+                .phase("bind", this::bindNetwork, "transport", "bans")
+                .phase("console", this::startConsole, "commands", "bind");
+
+        if (!startup.run()) {
+            // tear down whatever the phases before the failure started.
+            shutdownInternal();
             return;
         }
 
         createShutdownHook();
 
-        log.info("Loading server commands...");
-
-        this.dispatcher = new CrimsonCommandDispatcher();
-        registerServerCommands();
-
-        console = new CrimsonConsoleHandler(dispatcher);
-        console.start();
+        // used by the build to record the classes startup loads.
+        if (Boolean.getBoolean(EXIT_AFTER_STARTUP)) shutdown();
 
         final long delta = System.currentTimeMillis() - now;
         runServer(delta);
@@ -125,41 +173,149 @@ final class CrimsonServer implements Server {
         return network;
     }
 
+    @Override
+    public boolean canSendTo(InetSocketAddress address) {
+        return network.isWritable(address);
+    }
+
     @Override
     public String getVersion() {
         return VERSION;
     }
 
+    @Override
+    public long getCurrentTick() {
+        return tickLoop.getStatistics().getTicks();
+    }
+
+    @Override
+    public double getTicksPerSecond() {
+        return tickLoop.getStatistics().getTicksPerSecond();
+    }
+
+    @Override
+    public double getAverageTickTime() {
+        return tickLoop.getStatistics().getMillisecondsPerTick();
+    }
+
+    @Override
+    public boolean isOverloaded() {
+        return tickLoop.getStatistics().isOverloaded();
+    }
+
     /**
      * Load server.properties file.
-     *
-     * @return the result
      */
-    private boolean loadServerProperties() {
+    private void loadServerProperties() {
         final Path path = Path.of(PATH + "server.properties");
-        if (!serverProperties.generateServerPropertiesIfNeeded(path)) return false;
-        return serverProperties.loadServerProperties(path);
+        if (!serverProperties.generateServerPropertiesIfNeeded(path) || !serverProperties.loadServerProperties(path)) {
+            throw new IllegalStateException("Failed to load server.properties file");
+        }
+
+        try {
+            serverProperties.watch(async.sync());
+        } catch (IOException exception) {
+            log.warn("Failed to watch server.properties file, changes need a restart.", exception);
+        }
+    }
+
+    /**
+     * Bind the network, after bans are loaded so no banned address gets through.
+     */
+    private void bindNetwork() {
+        if (!network.bind()) throw new IllegalStateException("Failed to bind to " + network.getServer().getBindTo());
+    }
+
+    /**
+     * Start reading console commands.
+     */
+    private void startConsole() {
+        console = new CrimsonConsoleHandler(dispatcher, this);
+        console.start();
     }
 
     /**
      * Initialize the {@code banLists} array and load player bans from the file.
      */
     private void loadPlayerBans() {
-        banLists[BanListType.NAME.ordinal()] = new BanListByName();
-        banLists[BanListType.IP.ordinal()] = new BanListByIP();
+        final String shared = DefaultServerProperties.SHARED_BAN_TABLE.get();
+        if (!shared.isBlank() && loadSharedPlayerBans(Path.of(shared))) return;
+
+        final BanListByName names = new BanListByName(banExpiry);
+        final BanListByIP addresses = new BanListByIP(banExpiry);
+        banLists[BanListType.NAME.ordinal()] = names;
+        banLists[BanListType.IP.ordinal()] = addresses;
+
+        banJournal = new BanJournal(Path.of(PATH + "bans"), names, addresses);
+        try {
+            banJournal.open();
+        } catch (IOException exception) {
+            log.error("Failed to load bans, bans will not be saved!", exception);
+        }
     }
 
     /**
-     * Create a shutdown hook.
+     * Open the ban tables shared with other servers on this host, they store bans themselves.
+     *
+     * @param directory the directory of the tables
+     * @return {@code false} if they could not be opened.
+     */
+    private boolean loadSharedPlayerBans(Path directory) {
+        final int capacity = DefaultServerProperties.SHARED_BAN_TABLE_CAPACITY.get();
+        final boolean writer = DefaultServerProperties.SHARED_BAN_TABLE_WRITER.get();
+
+        SharedBanList names = null;
+        try {
+            names = new SharedBanList(BanListType.NAME, directory.resolve("names.table"), capacity, writer, banExpiry);
+            final SharedBanList addresses = new SharedBanList(BanListType.IP, directory.resolve("addresses.table"), capacity, writer, banExpiry);
+
+            banLists[BanListType.NAME.ordinal()] = names;
+            banLists[BanListType.IP.ordinal()] = addresses;
+            return true;
+        } catch (IOException | IllegalArgumentException exception) {
+            log.error("Failed to open the shared ban tables, using local bans instead!", exception);
+            closeQuietly(names);
+            return false;
+        }
+    }
+
+    /**
+     * Close a shared ban table.
+     *
+     * @param list the list, may be {@code null}
+     */
+    private void closeQuietly(BanList list) {
+        if (!(list instanceof SharedBanList shared)) return;
+        try {
+            shared.close();
+        } catch (IOException exception) {
+            log.warn("Failed to close a shared ban table.", exception);
+        }
+    }
+
+    /**
+     * Create a shutdown hook, it waits for the main thread to shut down since the JVM exits once hooks return.
      */
     private void createShutdownHook() {
-        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            shutdown();
+            try {
+                if (!terminated.await(SHUTDOWN_HOOK_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    log.warn("Timed out waiting for the server to shut down.");
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }, "Crimson Shutdown"));
     }
 
     /**
-     * Register server commands
+     * Create the dispatcher and register server commands
      */
-    private void registerServerCommands() {
+    private void loadServerCommands() {
+        log.info("Loading server commands...");
+
+        this.dispatcher = new CrimsonCommandDispatcher();
         register(new CommandServerStop());
     }
 
@@ -182,31 +338,49 @@ final class CrimsonServer implements Server {
     private void runServer(long delta) {
         log.info("Server startup finished, took " + delta + " ms.");
 
-        while (running.get() && !isStopping) {
-            final long now = System.currentTimeMillis();
-            pollPendingTasks();
-
-            final long time = System.currentTimeMillis() - now;
-            final long sleepTime = Math.max(1L, 50L - time);
-
-            try {
-                Thread.sleep(sleepTime);
-            } catch (Exception any) {
-                any.printStackTrace();
-            }
-        }
-
+        tickLoop.run(() -> running.get() && !isStopping, this::tick);
         shutdownInternal();
     }
 
     /**
-     * Poll pending server tasks.
+     * A single server tick.
+     */
+    private void tick() {
+        pollPendingTasks();
+        network.tick();
+        banExpiry.expire(System.currentTimeMillis());
+    }
+
+    /**
+     * Poll pending server tasks, within the tick budget.
      */
     private void pollPendingTasks() {
-        Runnable task;
-        while ((task = pendingServerTasks.poll()) != null) {
-            task.run();
-        }
+        scheduler.tick();
+    }
+
+    @Override
+    public CompletableFuture<Void> runSync(Runnable task) {
+        return scheduler.runSync(task);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> supplySync(Supplier<T> task) {
+        return scheduler.supplySync(task);
+    }
+
+    @Override
+    public ServerTask runLater(Runnable task, long delay) {
+        return scheduler.runLater(task, delay);
+    }
+
+    @Override
+    public ServerTask runRepeating(Runnable task, long delay, long period) {
+        return scheduler.runRepeating(task, delay, period);
+    }
+
+    @Override
+    public AsyncExecutor async() {
+        return async;
     }
 
     /**
@@ -219,6 +393,8 @@ final class CrimsonServer implements Server {
 
     /**
      * Shutdown on the main thread.
+     * <p>
+     * Also used when startup fails, so anything may not have been started yet.
      */
     private void shutdownInternal() {
         this.isStopping = true;
@@ -226,15 +402,24 @@ final class CrimsonServer implements Server {
         log.info("Shutting down server...");
 
         try {
-            console.shutdown();
-            network.getServer().shutdown();
+            serverProperties.close();
+            if (console != null) console.shutdown();
+            if (network != null) network.getServer().shutdown();
         } finally {
             this.running.set(false);
+            // let blocking work finish, it may still hand tasks to the main thread.
+            async.shutdown();
             // finish up any tasks
-            pollPendingTasks();
+            scheduler.drain();
+            if (banJournal != null) banJournal.close();
+            for (BanList list : banLists) closeQuietly(list);
 
             log.info("Goodbye!");
-            LogManager.shutdown();
+            try {
+                LogManager.shutdown();
+            } finally {
+                terminated.countDown();
+            }
         }
     }
 
@@ -7,6 +7,9 @@ public final class Main {
 
     public static void main(String[] args) {
         new CrimsonServer();
+
+        // network threads may linger, a training run must exit for the class archive to be written.
+        if (Boolean.getBoolean(CrimsonServer.EXIT_AFTER_STARTUP)) System.exit(0);
     }
 
 }
@@ -0,0 +1,69 @@
+package org.crimson.command;
+
+import org.crimson.command.argument.CommandArgument;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A node within the compiled command tree.
+ * <p>
+ * The root holds a literal child for every command name and alias, aliases share the node of their command.
+ * Below each literal is a chain of argument nodes, one per declared argument.
+ * A node is executable if the input may end there.
+ */
+final class CommandNode {
+
+    /**
+     * Literal children, by lower case name.
+     */
+    final Map<String, CommandNode> literals = new HashMap<>();
+
+    /**
+     * The argument this node parses, {@code null} for literals.
+     */
+    final CommandArgument argument;
+
+    /**
+     * Index of {@link #argument} within the command arguments.
+     */
+    final int index;
+
+    /**
+     * The next argument.
+     */
+    CommandNode next;
+
+    /**
+     * The command if the input may end here.
+     */
+    ServerCommand executes;
+
+    CommandNode(CommandArgument argument, int index) {
+        this.argument = argument;
+        this.index = index;
+    }
+
+    /**
+     * Compile the node chain for a command.
+     *
+     * @param command the command
+     * @return the literal node
+     */
+    static CommandNode compile(ServerCommand command) {
+        final CommandNode literal = new CommandNode(null, -1);
+
+        CommandNode node = literal;
+        for (int i = 0; i < command.getArguments().size(); i++) {
+            final CommandArgument argument = command.getArguments().get(i);
+            if (argument.optional()) node.executes = command;
+
+            node.next = new CommandNode(argument, i);
+            node = node.next;
+        }
+
+        node.executes = command;
+        return literal;
+    }
+
+}
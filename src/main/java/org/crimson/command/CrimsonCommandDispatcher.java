@@ -3,39 +3,172 @@ package org.crimson.command;
 import lombok.extern.log4j.Log4j2;
 import org.crimson.command.sender.CommandSender;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
 
 /**
  * Handles registering and dispatching commands from within the console.
+ * <p>
+ * Commands are compiled into a {@link CommandNode} tree when registered.
+ * Input is split once, walked down the tree and each argument is parsed by its type.
+ * Successful parses are cached by input, so repeated commands skip tokenizing and parsing.
+ * Dispatching should only happen on the main server thread.
  */
 @Log4j2
 public final class CrimsonCommandDispatcher implements CommandDispatcher {
 
     /**
-     * Map of server commands.
+     * Maximum amount of cached parse results.
      */
-    private final Map<String, ServerCommand> serverCommands = new HashMap<>();
+    private static final int CACHE_SIZE = 256;
+
+    /**
+     * Root of the command tree.
+     */
+    private final CommandNode root = new CommandNode(null, -1);
+
+    /**
+     * Recently parsed input.
+     */
+    private final Map<String, ParsedCommand> cache = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ParsedCommand> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
 
     @Override
     public boolean registerServerCommand(ServerCommand command) {
-        if (this.serverCommands.containsKey(command.getName())) return false;
-        this.serverCommands.put(command.getName(), command);
+        final String name = command.getName().toLowerCase(Locale.ROOT);
+        if (root.literals.containsKey(name)) return false;
+        for (String alias : command.getAliases()) {
+            if (root.literals.containsKey(alias.toLowerCase(Locale.ROOT))) return false;
+        }
+
+        final CommandNode node = CommandNode.compile(command);
+        root.literals.put(name, node);
+        for (String alias : command.getAliases()) root.literals.put(alias.toLowerCase(Locale.ROOT), node);
+
+        cache.clear();
         return true;
     }
 
     @Override
-    public boolean isCommand(String name) {
-        return serverCommands.containsKey(name.toLowerCase());
+    public boolean isCommand(String input) {
+        final String[] tokens = tokenize(input);
+        return tokens.length > 0 && root.literals.containsKey(tokens[0].toLowerCase(Locale.ROOT));
     }
 
     @Override
-    public void dispatch(String command, String[] arguments, CommandSender sender) {
-        final ServerCommand serverCommand = serverCommands.get(command);
-        if (!serverCommand.hasPermissionRequired(sender)) {
+    public boolean dispatch(String input, CommandSender sender) {
+        ParsedCommand parsed = cache.get(input);
+        if (parsed == null) {
+            final String[] tokens = tokenize(input);
+            if (tokens.length == 0) return false;
+
+            final CommandNode literal = root.literals.get(tokens[0].toLowerCase(Locale.ROOT));
+            if (literal == null) return false;
+
+            try {
+                parsed = parse(literal, tokens);
+            } catch (IllegalArgumentException exception) {
+                sender.sendMessage(exception.getMessage());
+                return true;
+            }
+            cache.put(input, parsed);
+        }
+
+        final ServerCommand command = parsed.command();
+        if (!command.hasPermissionRequired(sender)) {
             sender.sendMessage("You do not have permission to run this command!");
         } else {
-            serverCommand.execute(arguments, sender);
+            command.execute(parsed.arguments(), sender);
+        }
+        return true;
+    }
+
+    /**
+     * Walk the argument chain below a literal.
+     *
+     * @param literal the literal node
+     * @param tokens  the tokens, the first being the command name.
+     * @return the parsed command
+     * @throws IllegalArgumentException with a message for the sender if the input is invalid.
+     */
+    private ParsedCommand parse(CommandNode literal, String[] tokens) {
+        // every node below a literal belongs to the same command.
+        final ServerCommand command = last(literal).executes;
+        final Object[] values = new Object[command.getArguments().size()];
+        final String[] raw = new String[tokens.length - 1];
+        System.arraycopy(tokens, 1, raw, 0, raw.length);
+
+        CommandNode node = literal;
+        for (String token : raw) {
+            node = node.next;
+            if (node == null) throw new IllegalArgumentException("Too many arguments, usage: " + command.getUsage());
+
+            try {
+                values[node.index] = node.argument.type().parse(token);
+            } catch (IllegalArgumentException exception) {
+                throw new IllegalArgumentException("Invalid " + node.argument.name() + ": "
+                        + exception.getMessage() + " Usage: " + command.getUsage());
+            }
+        }
+
+        if (node.executes == null) throw new IllegalArgumentException("Not enough arguments, usage: " + command.getUsage());
+        return new ParsedCommand(command, new CommandArguments(command.getArguments(), raw, values));
+    }
+
+    /**
+     * @param node the node
+     * @return the last node of a chain.
+     */
+    private static CommandNode last(CommandNode node) {
+        while (node.next != null) node = node.next;
+        return node;
+    }
+
+    /**
+     * Split input on whitespace, ignoring a leading {@code /}.
+     *
+     * @param input the input
+     * @return the tokens
+     */
+    static String[] tokenize(String input) {
+        final int length = input.length();
+        int start = 0;
+        while (start < length && Character.isWhitespace(input.charAt(start))) start++;
+        if (start < length && input.charAt(start) == '/') start++;
+
+        // count first so only the result array is allocated.
+        int count = 0;
+        for (int i = start; i < length; ) {
+            while (i < length && Character.isWhitespace(input.charAt(i))) i++;
+            if (i == length) break;
+            count++;
+            while (i < length && !Character.isWhitespace(input.charAt(i))) i++;
+        }
+
+        final String[] tokens = new String[count];
+        int index = 0;
+        for (int i = start; i < length; ) {
+            while (i < length && Character.isWhitespace(input.charAt(i))) i++;
+            if (i == length) break;
+            final int begin = i;
+            while (i < length && !Character.isWhitespace(input.charAt(i))) i++;
+            tokens[index++] = input.substring(begin, i);
         }
+        return tokens;
     }
+
+    /**
+     * A cached parse result.
+     *
+     * @param command   the command
+     * @param arguments the parsed arguments
+     */
+    private record ParsedCommand(ServerCommand command, CommandArguments arguments) {
+    }
+
 }
@@ -1,6 +1,7 @@
 package org.crimson.command.commands;
 
 import org.crimson.Crimson;
+import org.crimson.command.CommandArguments;
 import org.crimson.command.ServerCommand;
 import org.crimson.command.sender.CommandSender;
 import org.crimson.permission.CrimsonPermissions;
@@ -17,7 +18,7 @@ public final class CommandServerStop extends ServerCommand {
     }
 
     @Override
-    public void execute(String[] arguments, CommandSender sender) {
+    public void execute(CommandArguments arguments, CommandSender sender) {
         sender.sendMessage("Stopping server...");
         Crimson.getServer().shutdown();
     }
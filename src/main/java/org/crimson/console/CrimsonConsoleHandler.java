@@ -2,13 +2,15 @@ package org.crimson.console;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.extern.log4j.Log4j2;
-import org.apache.commons.lang3.StringUtils;
+import org.crimson.Server;
 import org.crimson.command.CrimsonCommandDispatcher;
 import org.crimson.command.sender.CommandSender;
 import org.crimson.permission.CrimsonPermissions;
+import org.crimson.permission.Permission;
 import org.crimson.permission.PermissionHolder;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.Collection;
 import java.util.concurrent.ExecutorService;
@@ -18,6 +20,9 @@ import java.util.concurrent.ThreadFactory;
 /**
  * Reads incoming input from the console.
  * <p>
+ * The console thread blocks on {@link BufferedReader#readLine()} and uses no CPU while idle.
+ * Commands are handed to the main server thread and run during the next tick.
+ * <p>
  * TODO: In the future, console may not have all permissions.
  */
 @Log4j2
@@ -43,17 +48,26 @@ public final class CrimsonConsoleHandler implements CommandSender, Thread.Uncaug
      */
     private final CrimsonCommandDispatcher dispatcher;
 
+    /**
+     * The server, commands are run on its main thread.
+     */
+    private final Server server;
+
     /**
      * Running state
      */
-    private boolean running = true;
+    private volatile boolean running = true;
 
     /**
      * Initialize this console handler.
+     *
+     * @param dispatcher the dispatcher
+     * @param server     the server
      */
-    public CrimsonConsoleHandler(CrimsonCommandDispatcher dispatcher) {
+    public CrimsonConsoleHandler(CrimsonCommandDispatcher dispatcher, Server server) {
         reader = new BufferedReader(new InputStreamReader(System.in));
         this.dispatcher = dispatcher;
+        this.server = server;
 
         final ThreadFactory factory = new ThreadFactoryBuilder()
                 .setDaemon(true)
@@ -64,7 +78,7 @@ public final class CrimsonConsoleHandler implements CommandSender, Thread.Uncaug
 
         holder = new PermissionHolder();
         holder.setOp(true);
-        holder.setPermissions(CrimsonPermissions.ALL_PERMISSIONS);
+        holder.setPermission(CrimsonPermissions.WILDCARD);
     }
 
     /**
@@ -75,42 +89,45 @@ public final class CrimsonConsoleHandler implements CommandSender, Thread.Uncaug
     }
 
     /**
-     * Read
-     * <p>
-     * TODO: Commands are executed async
+     * Read input until the console is closed or the server is shutdown.
      */
     public void read() {
-        while (running) {
-            try {
-                if (reader.ready()) {
-                    final String input = reader.readLine();
-                    final String command = StringUtils.replace(input, "/", "");
-
-                    if (dispatcher.isCommand(command)) {
-                        dispatcher.dispatch(command, command.split(" "), this);
-                    } else {
-                        sendMessage("Command not found!");
-                    }
-                }
-            } catch (Exception any) {
-                log.warn("Failed to read input from reader!", any);
+        try {
+            String input;
+            while (running && (input = reader.readLine()) != null) {
+                if (!input.isBlank()) submit(input);
             }
+        } catch (IOException exception) {
+            if (running) log.warn("Failed to read input from reader!", exception);
+        }
+    }
+
+    /**
+     * Queue a command to run on the main server thread.
+     *
+     * @param input the console input
+     */
+    private void submit(String input) {
+        if (!dispatcher.isCommand(input)) {
+            sendMessage("Command not found!");
+            return;
         }
 
+        server.runSync(() -> dispatcher.dispatch(input, this))
+                .whenComplete((ignored, error) -> {
+                    if (error != null) sendMessage("Failed to run command " + input + ": " + error.getMessage());
+                });
     }
 
     /**
      * Shutdown
+     * <p>
+     * The reader is not closed, closing it would block on a thread still within {@code readLine()}.
+     * The console thread is a daemon so it will not keep the server alive.
      */
     public void shutdown() {
         this.running = false;
-
-        try {
-            service.shutdown();
-            reader.close();
-        } catch (Exception any) {
-            log.debug("Failed to close console reader {}", any.getMessage());
-        }
+        service.shutdownNow();
     }
 
     @Override
@@ -133,6 +150,11 @@ public final class CrimsonConsoleHandler implements CommandSender, Thread.Uncaug
         return holder.hasPermission(name);
     }
 
+    @Override
+    public boolean hasPermission(Permission permission) {
+        return holder.hasPermission(permission);
+    }
+
     @Override
     public void setPermission(String... permissions) {
         holder.setPermission(permissions);
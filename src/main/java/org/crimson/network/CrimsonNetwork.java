@@ -3,23 +3,56 @@ package org.crimson.network;
 import lombok.extern.log4j.Log4j2;
 import org.crimson.network.event.CrimsonServerEventHandler;
 import org.crimson.v3.RakNetServer;
+import org.crimson.v3.netty.RakChannel;
+import org.crimson.v3.netty.RakMemoryBudget;
+import org.crimson.v3.raknet.packet.RakNetMessage;
 
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The crimson network.
+ * <p>
+ * Network threads only decode, every game message is handled on the main thread during {@link #tick()}.
  */
 @Log4j2
 public final class CrimsonNetwork implements Network {
 
+    /**
+     * Game messages handled per session each tick, the rest wait for the next tick.
+     */
+    private static final int MESSAGES_PER_TICK = 256;
+
     /**
      * Rak server
      */
     private final RakNetServer server;
 
+    /**
+     * Hands over sessions created on network threads.
+     */
+    private final CrimsonServerEventHandler eventHandler;
+
+    /**
+     * Open sessions, only used on the main thread.
+     */
+    private final List<RakChannel> sessions = new ArrayList<>();
+    private final Map<SocketAddress, RakChannel> sessionsByAddress = new HashMap<>();
+
+    /**
+     * Budget of retained network buffers, shared with the server channel.
+     */
+    private final RakMemoryBudget memoryBudget;
+
     public CrimsonNetwork(InetSocketAddress address, CrimsonServerEventHandler eventHandler) {
         this.server = new RakNetServer(address, eventHandler);
+        this.eventHandler = eventHandler;
+        this.memoryBudget = eventHandler.getMemoryBudget();
     }
 
     /**
@@ -52,4 +85,65 @@ public final class CrimsonNetwork implements Network {
         return result.get();
     }
 
+    @Override
+    public long getRetainedBytes() {
+        return memoryBudget.getUsed();
+    }
+
+    @Override
+    public long getDroppedMessages() {
+        return memoryBudget.getDroppedMessages();
+    }
+
+    @Override
+    public long getSessionsClosedOverBudget() {
+        return memoryBudget.getClosedSessions();
+    }
+
+    @Override
+    public boolean isWritable(InetSocketAddress address) {
+        final RakChannel session = sessionsByAddress.get(address);
+        return session != null && session.isActive() && session.isWritable();
+    }
+
+    /**
+     * Handle the game messages of every session, on the main thread.
+     */
+    public void tick() {
+        RakChannel created;
+        while ((created = eventHandler.pollCreatedSession()) != null) {
+            sessions.add(created);
+            sessionsByAddress.put(created.remoteAddress(), created);
+        }
+
+        for (int i = sessions.size() - 1; i >= 0; i--) {
+            final RakChannel session = sessions.get(i);
+            if (session.isOpen()) {
+                session.drainInbound(message -> handle(session, message), MESSAGES_PER_TICK);
+                continue;
+            }
+
+            // release what is left, including anything handed off while it closed.
+            session.releaseInbound();
+            sessions.set(i, sessions.get(sessions.size() - 1));
+            sessions.remove(sessions.size() - 1);
+            sessionsByAddress.remove(session.remoteAddress(), session);
+        }
+    }
+
+    /**
+     * Handle a single game message.
+     *
+     * @param session the session
+     * @param message the message
+     */
+    private void handle(RakChannel session, RakNetMessage message) {
+        try {
+            // no game packets are decoded yet.
+            log.debug("Unhandled game message {} from {}", message.id(), session.remoteAddress());
+        } finally {
+            message.buffer().release();
+        }
+    }
+
 }
@@ -2,45 +2,182 @@ package org.crimson.network.event;
 
 import org.crimson.Server;
 import org.crimson.network.Protocol;
+import org.crimson.properties.DefaultServerProperties;
+import org.crimson.punishment.AddressBanList;
+import org.crimson.punishment.BanListType;
 import org.crimson.v3.RakEventHandler;
+import org.crimson.v3.netty.RakChannel;
+import org.crimson.v3.netty.RakMemoryBudget;
 import org.crimson.v3.utility.BedrockServerPing;
 
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Handles incoming RakNet events
  * <p>
- * TODO: Interval refresh ping.
+ * Changes to the ping are collected and encoded at most once per {@link #PING_REFRESH_INTERVAL} ticks.
  */
 public final class CrimsonServerEventHandler implements RakEventHandler {
 
+    /**
+     * How often the ping is refreshed if it changed, in ticks.
+     */
+    private static final long PING_REFRESH_INTERVAL = 20;
+
     /**
      * Server ping.
      */
     private final BedrockServerPing serverPing;
 
+    /**
+     * The server, ban lists are looked up on use since they may load while the transport starts.
+     */
+    private final Server server;
+
+    /**
+     * Amount of open sessions.
+     */
+    private final AtomicInteger sessions = new AtomicInteger();
+
+    /**
+     * Budget of the network buffers every session retains.
+     */
+    private final RakMemoryBudget memoryBudget = new RakMemoryBudget();
+
+    /**
+     * Sessions created on network threads, not yet picked up by the main thread.
+     */
+    private final Queue<RakChannel> createdSessions = new ConcurrentLinkedQueue<>();
+
+    /**
+     * MOTD lines to rotate through, only used on the main thread.
+     */
+    private String[] motds;
+
+    /**
+     * The current MOTD line and ticks until the next one.
+     */
+    private int motdIndex;
+    private long ticksUntilRotation;
+
     /**
      * Initialize
      *
      * @param server the server
      */
     public CrimsonServerEventHandler(Server server) {
+        this.server = server;
         serverPing = new BedrockServerPing()
                 .edition("MCPE")
-                .motd(server.getProperties().getPropertyAsString("motd"))
+                .motd(rotation(DefaultServerProperties.MOTD.get()))
                 .protocolVersion(Protocol.PROTOCOL_VERSION)
                 .versionName(Protocol.PROTOCOL_VERSION_NAME)
                 .playerCount(0)
-                .maxPlayerCount(server.getProperties().getPropertyAsInteger("max-players"))
-                .subMotd(server.getProperties().getPropertyAsString("sub-motd"))
+                .maxPlayerCount(DefaultServerProperties.MAX_PLAYERS.get())
+                .subMotd(DefaultServerProperties.SUB_MOTD.get())
                 .gameMode("Survival")
                 .gameModeNumber(1)
                 .portV4(19132)
                 .portV6(19133);
 
         serverPing.refresh();
+
+        // listeners run on the main thread.
+        DefaultServerProperties.MOTD.addListener((old, motd) -> serverPing.motd(rotation(motd)));
+        DefaultServerProperties.SUB_MOTD.addListener((old, motd) -> serverPing.subMotd(motd));
+        DefaultServerProperties.MAX_PLAYERS.addListener((old, max) -> serverPing.maxPlayerCount(max));
+        server.runRepeating(this::refreshPing, PING_REFRESH_INTERVAL, PING_REFRESH_INTERVAL);
+    }
+
+    /**
+     * Rotate the MOTD and encode the ping if anything changed, on the main thread.
+     */
+    private void refreshPing() {
+        ticksUntilRotation -= PING_REFRESH_INTERVAL;
+        if (motds.length > 1 && ticksUntilRotation <= 0) {
+            motdIndex = (motdIndex + 1) % motds.length;
+            ticksUntilRotation = DefaultServerProperties.MOTD_ROTATION_INTERVAL.get() * 20L;
+            serverPing.motd(motds[motdIndex]);
+        }
+
+        serverPing.refreshIfChanged();
+    }
+
+    /**
+     * Start a new MOTD rotation, lines are separated by {@code ;} which the ping can not contain anyway.
+     *
+     * @param motd the motd property
+     * @return the first line
+     */
+    private String rotation(String motd) {
+        motds = motd.split(";");
+        if (motds.length == 0) motds = new String[]{""};
+        motdIndex = 0;
+        ticksUntilRotation = DefaultServerProperties.MOTD_ROTATION_INTERVAL.get() * 20L;
+        return motds[0];
+    }
+
+    @Override
+    public boolean canAdmit(int sessions, int pendingHandshakes) {
+        if (sessions >= DefaultServerProperties.MAX_PLAYERS.get()) return false;
+        if (pendingHandshakes >= DefaultServerProperties.MAX_PENDING_HANDSHAKES.get()) return false;
+
+        // admitting more players into a lagging server makes everyone lag.
+        final int maxTickTime = DefaultServerProperties.ADMISSION_MAX_TICK_TIME.get();
+        return maxTickTime == 0 || server.getAverageTickTime() <= maxTickTime;
+    }
+
+    @Override
+    public long getSessionMemoryLimit() {
+        return DefaultServerProperties.SESSION_MEMORY_LIMIT.get() * 1024L;
+    }
+
+    @Override
+    public long getMemoryLimit() {
+        return DefaultServerProperties.NETWORK_MEMORY_LIMIT.get() * 1024L * 1024L;
+    }
+
+    @Override
+    public RakMemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    @Override
+    public void onSessionOpened(InetSocketAddress address) {
+        serverPing.playerCount(sessions.incrementAndGet());
+    }
+
+    @Override
+    public boolean onSessionCreated(RakChannel session) {
+        createdSessions.add(session);
+        return true;
+    }
+
+    /**
+     * Take the next session created since the last call, on the main thread.
+     *
+     * @return the session or {@code null} if none
+     */
+    public RakChannel pollCreatedSession() {
+        return createdSessions.poll();
+    }
+
+    @Override
+    public void onSessionClosed(InetSocketAddress address) {
+        serverPing.playerCount(sessions.decrementAndGet());
     }
 
     @Override
     public BedrockServerPing onPing() {
         return serverPing;
     }
+
+    @Override
+    public boolean isAddressBanned(InetAddress address) {
+        return ((AddressBanList) server.getBanList(BanListType.IP)).isBanned(address);
+    }
 }
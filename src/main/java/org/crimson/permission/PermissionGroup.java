@@ -0,0 +1,95 @@
+package org.crimson.permission;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A named set of permissions that holders can be a member of.
+ * <p>
+ * Groups inherit every permission of their parents. Any change invalidates the resolved permissions of every holder.
+ */
+public final class PermissionGroup {
+
+    /**
+     * Granted nodes and wildcards.
+     */
+    private final Set<String> permissions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Groups inherited from.
+     */
+    private final CopyOnWriteArrayList<PermissionGroup> parents = new CopyOnWriteArrayList<>();
+
+    /**
+     * The name
+     */
+    private final String name;
+
+    public PermissionGroup(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Grant permissions, a node ending with {@code *} grants every node below it.
+     *
+     * @param permissions the permissions
+     */
+    public void addPermissions(String... permissions) {
+        Collections.addAll(this.permissions, permissions);
+        PermissionResolver.invalidate();
+    }
+
+    /**
+     * Revoke a permission.
+     *
+     * @param permission the permission
+     */
+    public void removePermission(String permission) {
+        if (permissions.remove(permission)) PermissionResolver.invalidate();
+    }
+
+    /**
+     * Inherit from another group.
+     *
+     * @param parent the parent
+     */
+    public void addParent(PermissionGroup parent) {
+        if (parent == this) throw new IllegalArgumentException("A group can not inherit itself.");
+        if (parents.addIfAbsent(parent)) PermissionResolver.invalidate();
+    }
+
+    /**
+     * Stop inheriting from another group.
+     *
+     * @param parent the parent
+     */
+    public void removeParent(PermissionGroup parent) {
+        if (parents.remove(parent)) PermissionResolver.invalidate();
+    }
+
+    /**
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return granted nodes and wildcards.
+     */
+    public Collection<String> getPermissions() {
+        return Collections.unmodifiableSet(permissions);
+    }
+
+    /**
+     * @return groups inherited from.
+     */
+    public List<PermissionGroup> getParents() {
+        return Collections.unmodifiableList(parents);
+    }
+
+}
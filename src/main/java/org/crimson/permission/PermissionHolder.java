@@ -1,18 +1,36 @@
 package org.crimson.permission;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Keeps track of permissions.
  * <p>
- * TODO: Will be improved in the future.
+ * Grants and groups are resolved into a bitset of permission ids, checks are a single bit test.
+ * The bitset is resolved again lazily whenever the holder, a group or the set of known nodes changes.
  */
 public final class PermissionHolder implements Permissible {
 
     /**
-     * Set of permissions
+     * Granted nodes and wildcards.
      */
-    private final List<String> permissions = new ArrayList<>();
+    private final Set<String> permissions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Groups this holder is a member of.
+     */
+    private final CopyOnWriteArrayList<PermissionGroup> groups = new CopyOnWriteArrayList<>();
+
+    /**
+     * Increased every time this holder changes.
+     */
+    private volatile int changes;
+
+    /**
+     * Resolved permissions.
+     */
+    private volatile Resolved resolved = new Resolved(-1L, -1, new long[0]);
 
     /**
      * If we are OP.
@@ -31,16 +49,91 @@ public final class PermissionHolder implements Permissible {
 
     @Override
     public boolean hasPermission(String name) {
-        return this.permissions.contains(name);
+        final Permission permission = Permission.find(name);
+        return permission != null && hasPermission(permission);
+    }
+
+    @Override
+    public boolean hasPermission(Permission permission) {
+        Resolved current = resolved;
+        if (current.version != PermissionResolver.version() || current.changes != changes) current = resolve();
+        return PermissionTrie.get(current.bits, permission.getId());
     }
 
     @Override
     public void setPermission(String... permissions) {
         this.permissions.addAll(Arrays.asList(permissions));
+        changed();
     }
 
     @Override
     public void setPermissions(Collection<String> permissions) {
         this.permissions.addAll(permissions);
+        changed();
+    }
+
+    /**
+     * Revoke a permission.
+     *
+     * @param permission the permission
+     */
+    public void removePermission(String permission) {
+        if (permissions.remove(permission)) changed();
     }
+
+    /**
+     * Join a group.
+     *
+     * @param group the group
+     */
+    public void addGroup(PermissionGroup group) {
+        if (groups.addIfAbsent(group)) changed();
+    }
+
+    /**
+     * Leave a group.
+     *
+     * @param group the group
+     */
+    public void removeGroup(PermissionGroup group) {
+        if (groups.remove(group)) changed();
+    }
+
+    /**
+     * @return groups this holder is a member of.
+     */
+    public List<PermissionGroup> getGroups() {
+        return Collections.unmodifiableList(groups);
+    }
+
+    /**
+     * Invalidate the resolved permissions.
+     */
+    private synchronized void changed() {
+        changes++;
+    }
+
+    /**
+     * Resolve permissions, versions are read first so changes made meanwhile are picked up next check.
+     *
+     * @return the resolved permissions
+     */
+    private Resolved resolve() {
+        final long version = PermissionResolver.version();
+        final int changes = this.changes;
+        final Resolved current = new Resolved(version, changes, PermissionResolver.resolve(permissions, groups));
+        this.resolved = current;
+        return current;
+    }
+
+    /**
+     * Resolved permission bits.
+     *
+     * @param version the resolver version these bits were resolved at.
+     * @param changes the holder changes these bits were resolved at.
+     * @param bits    the bits
+     */
+    private record Resolved(long version, int changes, long[] bits) {
+    }
+
 }
@@ -0,0 +1,87 @@
+package org.crimson.permission;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolves grants and groups into a bitset of permission ids.
+ * <p>
+ * Resolved bitsets are stamped with {@link #version()}, which changes when a node is created or any group changes.
+ * Holders compare stamps on each check and only resolve again once it has changed.
+ */
+final class PermissionResolver {
+
+    /**
+     * Increased every time a group changes.
+     */
+    private static final AtomicInteger GROUP_VERSION = new AtomicInteger();
+
+    /**
+     * The current trie.
+     */
+    private static volatile PermissionTrie trie = new PermissionTrie(Permission.all());
+
+    private PermissionResolver() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return the current version
+     */
+    static long version() {
+        return ((long) Permission.count() << 32) | (GROUP_VERSION.get() & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Invalidate every resolved bitset.
+     */
+    static void invalidate() {
+        GROUP_VERSION.incrementAndGet();
+    }
+
+    /**
+     * Resolve grants and groups, including inherited groups.
+     *
+     * @param grants the grants
+     * @param groups the groups
+     * @return the bits
+     */
+    static long[] resolve(Iterable<String> grants, Iterable<PermissionGroup> groups) {
+        final PermissionTrie trie = trie();
+        final long[] bits = new long[PermissionTrie.words(trie.size())];
+        for (String grant : grants) trie.resolve(grant, bits);
+
+        final Set<PermissionGroup> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (PermissionGroup group : groups) resolve(trie, group, bits, visited);
+        return bits;
+    }
+
+    /**
+     * Resolve a group and its parents once each.
+     */
+    private static void resolve(PermissionTrie trie, PermissionGroup group, long[] bits, Set<PermissionGroup> visited) {
+        if (!visited.add(group)) return;
+        for (String grant : group.getPermissions()) trie.resolve(grant, bits);
+        for (PermissionGroup parent : group.getParents()) resolve(trie, parent, bits, visited);
+    }
+
+    /**
+     * @return the trie, rebuilt if nodes were created since.
+     */
+    private static PermissionTrie trie() {
+        PermissionTrie current = trie;
+        if (current.size() != Permission.count()) {
+            synchronized (PermissionResolver.class) {
+                current = trie;
+                if (current.size() != Permission.count()) {
+                    current = new PermissionTrie(Permission.all());
+                    trie = current;
+                }
+            }
+        }
+        return current;
+    }
+
+}
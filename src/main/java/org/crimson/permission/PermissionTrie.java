@@ -0,0 +1,109 @@
+package org.crimson.permission;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Every known permission node, split on {@code .} into a trie.
+ * <p>
+ * Each trie node keeps the bits of every permission at or below it, so a wildcard such as {@code crimson.*}
+ * resolves to a bitset by walking its prefix. Immutable once built, rebuilt when new nodes are created.
+ */
+final class PermissionTrie {
+
+    /**
+     * The root, matches everything.
+     */
+    private final Node root = new Node();
+
+    /**
+     * Amount of permissions this trie was built from.
+     */
+    private final int size;
+
+    PermissionTrie(List<Permission> permissions) {
+        this.size = permissions.size();
+        final int words = words(size);
+
+        root.subtree = new long[words];
+        for (Permission permission : permissions) {
+            Node node = root;
+            set(node.subtree, permission.getId());
+
+            for (String segment : permission.getName().split("\\.")) {
+                node = node.children.computeIfAbsent(segment, ignored -> new Node());
+                if (node.subtree == null) node.subtree = new long[words];
+                set(node.subtree, permission.getId());
+            }
+        }
+    }
+
+    /**
+     * OR the bits a grant gives into {@code bits}.
+     *
+     * @param grant a node name, {@code *} or a prefix ending with {@code .*}
+     * @param bits  the bits
+     */
+    void resolve(String grant, long[] bits) {
+        if (grant.equals(CrimsonPermissions.WILDCARD)) {
+            or(root.subtree, bits);
+        } else if (grant.endsWith(".*")) {
+            // names are stored lower case, as Permission.find folds them.
+            Node node = root;
+            for (String segment : grant.substring(0, grant.length() - 2).toLowerCase(Locale.ROOT).split("\\.")) {
+                node = node.children.get(segment);
+                if (node == null) return;
+            }
+            or(node.subtree, bits);
+        } else {
+            final Permission permission = Permission.find(grant);
+            if (permission != null && permission.getId() < size) set(bits, permission.getId());
+        }
+    }
+
+    /**
+     * @return amount of permissions this trie was built from.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param size amount of bits
+     * @return amount of words needed.
+     */
+    static int words(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    /**
+     * Check a bit.
+     *
+     * @param bits the bits
+     * @param id   the permission id
+     * @return {@code true} if set
+     */
+    static boolean get(long[] bits, int id) {
+        final int word = id >>> 6;
+        return word < bits.length && (bits[word] & (1L << id)) != 0;
+    }
+
+    private static void set(long[] bits, int id) {
+        bits[id >>> 6] |= 1L << id;
+    }
+
+    private static void or(long[] from, long[] into) {
+        for (int i = 0; i < from.length; i++) into[i] |= from[i];
+    }
+
+    /**
+     * A segment.
+     */
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private long[] subtree;
+    }
+
+}
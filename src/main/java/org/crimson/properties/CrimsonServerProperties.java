@@ -1,29 +1,59 @@
 package org.crimson.properties;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.extern.log4j.Log4j2;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Represents memory copy of the "server.properties" file.
+ * <p>
+ * Registered properties are parsed once per load, other keys are kept as strings.
+ * Once watched, the file is reloaded when it changes and listeners of changed properties are notified.
  */
 @Log4j2
 public final class CrimsonServerProperties implements ServerPropertiesConfiguration {
 
     /**
-     * Map of properties.
+     * How long to wait for more changes after the file changed, editors often write it several times.
      */
-    private final Map<String, String> properties = new HashMap<>();
+    private static final long RELOAD_DELAY_MILLIS = 100;
+
+    /**
+     * Registered properties, by name in file order.
+     */
+    private final Map<String, ServerProperty<?>> registered = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    /**
+     * Every key and value in the file.
+     */
+    private volatile Map<String, String> properties = Map.of();
+
+    /**
+     * The file, once loaded.
+     */
+    private Path file;
+
+    /**
+     * Runs change listeners.
+     */
+    private Executor listenerExecutor = Runnable::run;
+
+    /**
+     * Watches the directory of the file, {@code null} if not watching.
+     */
+    private WatchService watcher;
+
+    public CrimsonServerProperties() {
+        DefaultServerProperties.values().forEach(this::register);
+    }
 
     @Override
     public boolean generateServerPropertiesIfNeeded(Path where) {
@@ -31,17 +61,12 @@ public final class CrimsonServerProperties implements ServerPropertiesConfigurat
 
         try {
             log.info("Generating server.properties file...");
-            Files.createFile(where);
-
-            // populate map with default values.
-            for (DefaultServerProperties property : DefaultServerProperties.values()) {
-                properties.put(property.name, property.value);
-            }
 
-            // write all this to the file.
             final List<String> propertyWithValues = new ArrayList<>();
-            properties.forEach((property, value) -> propertyWithValues.add(property + "=" + value));
-            FileUtils.writeLines(where.toFile(), propertyWithValues);
+            synchronized (registered) {
+                registered.values().forEach(property -> propertyWithValues.add(property.getName() + "=" + property.getDefaultValue()));
+            }
+            Files.write(where, propertyWithValues, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW);
         } catch (IOException exception) {
             log.error("Failed to generate server.properties file", exception);
             return false;
@@ -51,17 +76,21 @@ public final class CrimsonServerProperties implements ServerPropertiesConfigurat
     }
 
     @Override
-    public boolean loadServerProperties(Path where) {
-        if (!properties.isEmpty()) return true;
+    public synchronized boolean loadServerProperties(Path where) {
+        if (file != null) return true;
 
         try {
             log.info("Reading server.properties file...");
-            FileUtils.readLines(where.toFile(), StandardCharsets.UTF_8)
-                    .forEach(line -> {
-                        final String propertyName = StringUtils.substringBefore(line, "=");
-                        final String propertyValue = StringUtils.substringAfter(line, "=");
-                        properties.put(propertyName, propertyValue);
-                    });
+            final String content = Files.readString(where, StandardCharsets.UTF_8);
+            properties = parse(content);
+            file = where;
+
+            final List<ServerProperty<?>> all;
+            synchronized (registered) {
+                all = List.copyOf(registered.values());
+            }
+            all.forEach(property -> apply(property, true));
+            appendMissing(content, all);
         } catch (IOException exception) {
             log.error("Failed to load server.properties file", exception);
             return false;
@@ -69,26 +98,100 @@ public final class CrimsonServerProperties implements ServerPropertiesConfigurat
         return true;
     }
 
+    @Override
+    public synchronized boolean reloadServerProperties() {
+        if (file == null) return false;
+
+        final Map<String, String> reloaded;
+        try {
+            reloaded = parse(Files.readString(file, StandardCharsets.UTF_8));
+        } catch (IOException exception) {
+            log.error("Failed to reload server.properties file", exception);
+            return false;
+        }
+        if (reloaded.equals(properties)) return true;
+
+        properties = reloaded;
+        final List<ServerProperty<?>> all;
+        synchronized (registered) {
+            all = List.copyOf(registered.values());
+        }
+        all.forEach(property -> apply(property, false));
+        log.info("Reloaded server.properties file.");
+        return true;
+    }
+
+    @Override
+    public void register(ServerProperty<?> property) {
+        if (registered.putIfAbsent(property.getName(), property) != null) {
+            throw new IllegalArgumentException("Property " + property.getName() + " is already registered.");
+        }
+
+        synchronized (this) {
+            if (file != null) apply(property, true);
+        }
+    }
+
+    /**
+     * Reload the file whenever it changes.
+     *
+     * @param listenerExecutor runs change listeners
+     * @throws IOException if the file could not be watched.
+     */
+    public synchronized void watch(Executor listenerExecutor) throws IOException {
+        if (file == null || watcher != null) return;
+
+        final Path directory = file.toAbsolutePath().getParent();
+        final Path name = file.getFileName();
+        this.listenerExecutor = listenerExecutor;
+        this.watcher = directory.getFileSystem().newWatchService();
+        directory.register(watcher, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+
+        final WatchService service = watcher;
+        new ThreadFactoryBuilder()
+                .setNameFormat("Crimson Properties Watcher")
+                .setDaemon(true)
+                .setUncaughtExceptionHandler((thread, error) -> log.error("Properties watcher caught an exception!", error))
+                .build()
+                .newThread(() -> watch(service, name))
+                .start();
+    }
+
+    /**
+     * Stop watching the file.
+     */
+    public synchronized void close() {
+        if (watcher == null) return;
+        try {
+            watcher.close();
+        } catch (IOException exception) {
+            log.warn("Failed to stop watching server.properties file", exception);
+        }
+        watcher = null;
+    }
+
     /**
      * Get a property.
      *
      * @param name the name
-     * @return the property
+     * @return the property, or {@code null} if missing.
      */
     @Override
     public String getPropertyAsString(String name) {
-        return properties.get(name);
+        final ServerProperty<?> property = registered.get(name);
+        return property != null ? String.valueOf(property.get()) : properties.get(name);
     }
 
     /**
      * Get a property.
      *
      * @param name the name
-     * @return the property
+     * @return the property, or {@code 0} if missing or not a number.
      */
     @Override
     public int getPropertyAsInteger(String name) {
-        return NumberUtils.createInteger(properties.get(name));
+        if (registered.get(name) instanceof ServerProperty<?> property && property.get() instanceof Integer value) return value;
+        return NumberUtils.toInt(StringUtils.trim(properties.get(name)));
     }
 
     /**
@@ -99,6 +202,112 @@ public final class CrimsonServerProperties implements ServerPropertiesConfigurat
      */
     @Override
     public boolean getPropertyAsBoolean(String name) {
-        return Boolean.parseBoolean(properties.get(name));
+        if (registered.get(name) instanceof ServerProperty<?> property && property.get() instanceof Boolean value) return value;
+        return Boolean.parseBoolean(StringUtils.trim(properties.get(name)));
+    }
+
+    /**
+     * Wait for changes to the file.
+     *
+     * @param service the watcher
+     * @param name    the file name
+     */
+    private void watch(WatchService service, Path name) {
+        try {
+            while (true) {
+                if (!changed(service.take(), name)) continue;
+
+                // wait until writes stop.
+                WatchKey next;
+                while ((next = service.poll(RELOAD_DELAY_MILLIS, TimeUnit.MILLISECONDS)) != null) changed(next, name);
+                reloadServerProperties();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException ignored) {
+            // stopped
+        }
+    }
+
+    /**
+     * @param key  the key
+     * @param name the file name
+     * @return {@code true} if any event was for the file.
+     */
+    private static boolean changed(WatchKey key, Path name) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (name.equals(event.context())) changed = true;
+        }
+        key.reset();
+        return changed;
     }
+
+    /**
+     * Parse and set a property from the file.
+     *
+     * @param property the property
+     * @param initial  if this is the first load, which sets properties that require a restart and notifies nobody.
+     * @param <T>      the type
+     */
+    private <T> void apply(ServerProperty<T> property, boolean initial) {
+        final String raw = properties.get(property.getName());
+
+        T value = property.getDefaultValue();
+        if (raw != null) {
+            try {
+                value = property.parse(raw);
+            } catch (IllegalArgumentException exception) {
+                log.warn("Invalid value for {}: '{}', using {}.", property.getName(), raw, initial ? value : property.get());
+                if (!initial) return;
+            }
+        }
+
+        if (initial) {
+            property.set(value);
+        } else if (!Objects.equals(value, property.get())) {
+            if (property.isRequiresRestart()) {
+                log.info("{} will change after a restart.", property.getName());
+                return;
+            }
+
+            final T old = property.set(value);
+            final T now = value;
+            log.info("{} changed from {} to {}.", property.getName(), old, now);
+            listenerExecutor.execute(() -> property.notifyListeners(old, now));
+        }
+    }
+
+    /**
+     * Add registered properties missing from the file with their defaults, such as ones added in an update.
+     *
+     * @param content the file
+     * @param all     registered properties
+     * @throws IOException if writing failed
+     */
+    private void appendMissing(String content, List<ServerProperty<?>> all) throws IOException {
+        final StringBuilder missing = new StringBuilder();
+        for (ServerProperty<?> property : all) {
+            if (!properties.containsKey(property.getName())) {
+                missing.append(property.getName()).append('=').append(property.getDefaultValue()).append(System.lineSeparator());
+            }
+        }
+        if (missing.isEmpty()) return;
+
+        if (!content.isEmpty() && !content.endsWith("\n")) missing.insert(0, System.lineSeparator());
+        Files.writeString(file, missing, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * @param content the file
+     * @return every key and value, blank lines and comments are skipped.
+     */
+    private static Map<String, String> parse(String content) {
+        final Map<String, String> parsed = new HashMap<>();
+        content.lines().forEach(line -> {
+            final String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#") || !trimmed.contains("=")) return;
+            parsed.put(StringUtils.substringBefore(trimmed, "=").trim(), StringUtils.substringAfter(trimmed, "="));
+        });
+        return Map.copyOf(parsed);
+    }
+
 }
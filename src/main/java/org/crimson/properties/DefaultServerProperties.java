@@ -1,33 +1,83 @@
 package org.crimson.properties;
 
+import org.crimson.punishment.SharedBanList;
+
+import java.util.List;
+
 /**
  * Represents the default server properties.
  */
-public enum DefaultServerProperties {
+public final class DefaultServerProperties {
 
     /**
      * The main MOTD line.
      */
-    MOTD("motd", "A Crimson server."),
+    public static final ServerProperty<String> MOTD = ServerProperty.ofString("motd", "A Crimson server.");
+
+    /**
+     * Seconds each MOTD is shown for, if several are separated by {@code ;}.
+     */
+    public static final ServerProperty<Integer> MOTD_ROTATION_INTERVAL = ServerProperty.ofInteger("motd-rotation-interval", 10, 1, 3600);
 
     /**
      * The second MOTD line.
      */
-    SUB_MOTD("sub-motd", "A Crimson server!"),
+    public static final ServerProperty<String> SUB_MOTD = ServerProperty.ofString("sub-motd", "A Crimson server!");
 
     /**
      * The max players allowed.
      */
-    MAX_PLAYERS("max-players", "20");
+    public static final ServerProperty<Integer> MAX_PLAYERS = ServerProperty.ofInteger("max-players", 20, 1, 100_000);
+
+    /**
+     * Handshakes waiting for their second request above which new ones are refused, those not finished within 30 seconds are forgotten.
+     */
+    public static final ServerProperty<Integer> MAX_PENDING_HANDSHAKES = ServerProperty.ofInteger("max-pending-handshakes", 512, 1, 1_000_000);
+
+    /**
+     * Average milliseconds per tick above which new connections are refused, 0 to never refuse.
+     */
+    public static final ServerProperty<Integer> ADMISSION_MAX_TICK_TIME = ServerProperty.ofInteger("admission-max-tick-time", 50, 0, 10_000);
+
+    /**
+     * Kilobytes of network buffers a single session may retain.
+     */
+    public static final ServerProperty<Integer> SESSION_MEMORY_LIMIT = ServerProperty.ofInteger("session-memory-limit-kb", 4096, 64, 1 << 20);
+
+    /**
+     * Megabytes of network buffers every session together may retain.
+     */
+    public static final ServerProperty<Integer> NETWORK_MEMORY_LIMIT = ServerProperty.ofInteger("network-memory-limit-mb", 256, 1, 1 << 16);
+
+    /**
+     * Directory of the ban tables shared with other servers on this host, empty to keep bans local.
+     */
+    public static final ServerProperty<String> SHARED_BAN_TABLE = ServerProperty.ofString("shared-ban-table", "").requiresRestart();
+
+    /**
+     * If this server applies changes to the shared ban tables, only one server may.
+     */
+    public static final ServerProperty<Boolean> SHARED_BAN_TABLE_WRITER = ServerProperty.ofBoolean("shared-ban-table-writer", false).requiresRestart();
 
     /**
-     * The name and value.
+     * The amount of bans each shared ban table can hold, used when the tables are created.
      */
-    protected final String name, value;
+    public static final ServerProperty<Integer> SHARED_BAN_TABLE_CAPACITY = ServerProperty.ofInteger("shared-ban-table-capacity", 1 << 20, 16, SharedBanList.MAXIMUM_CAPACITY).requiresRestart();
 
-    DefaultServerProperties(String name, String value) {
-        this.name = name;
-        this.value = value;
+    /**
+     * Every default property, in file order.
+     */
+    private static final List<ServerProperty<?>> VALUES = List.of(MOTD, MOTD_ROTATION_INTERVAL, SUB_MOTD, MAX_PLAYERS, MAX_PENDING_HANDSHAKES, ADMISSION_MAX_TICK_TIME,
+            SESSION_MEMORY_LIMIT, NETWORK_MEMORY_LIMIT, SHARED_BAN_TABLE, SHARED_BAN_TABLE_WRITER, SHARED_BAN_TABLE_CAPACITY);
+
+    private DefaultServerProperties() {
+    }
+
+    /**
+     * @return every default property, in file order.
+     */
+    public static List<ServerProperty<?>> values() {
+        return VALUES;
     }
 
 }
@@ -0,0 +1,18 @@
+package org.crimson.punishment;
+
+import java.net.InetAddress;
+
+/**
+ * A ban list that can check addresses without parsing them first.
+ */
+public interface AddressBanList extends BanList {
+
+    /**
+     * Check if an address is banned, directly or within a banned range.
+     *
+     * @param address the address
+     * @return {@code true} if so
+     */
+    boolean isBanned(InetAddress address);
+
+}
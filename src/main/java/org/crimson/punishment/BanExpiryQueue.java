@@ -0,0 +1,79 @@
+package org.crimson.punishment;
+
+import java.util.PriorityQueue;
+
+/**
+ * Expires temporary bans when they are due.
+ * <p>
+ * Bans are kept within a min-heap ordered by expiration, so only bans that are due are ever looked at.
+ * {@link #expire(long)} is called every tick and returns after a single comparison until the earliest ban is due.
+ * Bans removed or replaced before expiring stay within the heap, their lists ignore them once due.
+ */
+public final class BanExpiryQueue {
+
+    /**
+     * Scheduled expirations.
+     */
+    private final PriorityQueue<Scheduled> queue = new PriorityQueue<>();
+
+    /**
+     * When the earliest ban expires.
+     */
+    private volatile long next = Long.MAX_VALUE;
+
+    /**
+     * Schedule an expiration.
+     *
+     * @param expiration when, in epoch milliseconds.
+     * @param expire     removes the ban from its list.
+     */
+    synchronized void schedule(long expiration, Runnable expire) {
+        queue.add(new Scheduled(expiration, expire));
+        if (expiration < next) next = expiration;
+    }
+
+    /**
+     * Expire every ban that is due, on the main server thread.
+     *
+     * @param now the current time in epoch milliseconds.
+     */
+    public void expire(long now) {
+        if (now < next) return;
+
+        while (true) {
+            final Scheduled due;
+            synchronized (this) {
+                final Scheduled head = queue.peek();
+                if (head == null || head.expiration > now) {
+                    next = head == null ? Long.MAX_VALUE : head.expiration;
+                    return;
+                }
+                due = queue.poll();
+            }
+            due.expire.run();
+        }
+    }
+
+    /**
+     * @return the amount of scheduled expirations.
+     */
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    /**
+     * A scheduled expiration.
+     *
+     * @param expiration when
+     * @param expire     the task
+     */
+    private record Scheduled(long expiration, Runnable expire) implements Comparable<Scheduled> {
+
+        @Override
+        public int compareTo(Scheduled other) {
+            return Long.compare(expiration, other.expiration);
+        }
+
+    }
+
+}
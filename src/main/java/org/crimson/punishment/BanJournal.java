@@ -0,0 +1,470 @@
+package org.crimson.punishment;
+
+import lombok.extern.log4j.Log4j2;
+import org.crimson.network.InetRange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Stores bans on disk as a snapshot plus an append-only journal.
+ * <p>
+ * Every change is appended to the journal by a single writer thread. Changes queued while a write is in progress
+ * are written and forced to disk together, so many bans cost a single sync. Once the journal grows large enough
+ * the writer compacts the current bans into a new snapshot and starts an empty journal.
+ * <p>
+ * On startup the snapshot and journal are memory-mapped and decoded in place, only the journal tail written since
+ * the last compaction is replayed. Records are framed with a length and CRC32, a torn record at the end of the
+ * journal is dropped.
+ */
+@Log4j2
+public final class BanJournal implements AutoCloseable {
+
+    /**
+     * File headers.
+     */
+    private static final int JOURNAL_MAGIC = 0x43424A4C, SNAPSHOT_MAGIC = 0x4342534E, VERSION = 1;
+
+    /**
+     * Header size, magic and version.
+     */
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * Record operations.
+     */
+    private static final byte ADD = 1, REMOVE = 2;
+
+    /**
+     * Compact once the journal is at least this large.
+     */
+    private static final long COMPACT_THRESHOLD = 4L << 20;
+
+    /**
+     * How long to wait before a failed batch is written again, and how often it is tried once closing.
+     */
+    private static final long RETRY_DELAY_MILLIS = 1000;
+    private static final int CLOSE_ATTEMPTS = 3;
+
+    /**
+     * Tells the writer to stop.
+     */
+    private static final Record CLOSE = new Record(REMOVE, BanListType.NAME, null, null);
+
+    /**
+     * Files.
+     */
+    private final Path snapshotFile, journalFile;
+
+    /**
+     * The ban lists.
+     */
+    private final BanListByName names;
+    private final BanListByIP addresses;
+
+    /**
+     * Records waiting to be written.
+     */
+    private final BlockingQueue<Record> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * The journal, only used by the writer once open.
+     */
+    private FileChannel journal;
+
+    /**
+     * Writer thread.
+     */
+    private Thread writer;
+
+    /**
+     * End of the last good record if a failed write could not be cut off yet, otherwise {@code -1}.
+     */
+    private long tornAt = -1;
+
+    /**
+     * Size of the last snapshot.
+     */
+    private long snapshotSize;
+
+    /**
+     * Initialize
+     *
+     * @param directory the directory to store bans within.
+     * @param names     the name ban list
+     * @param addresses the IP ban list
+     */
+    public BanJournal(Path directory, BanListByName names, BanListByIP addresses) {
+        this.snapshotFile = directory.resolve("bans.snapshot");
+        this.journalFile = directory.resolve("bans.journal");
+        this.names = names;
+        this.addresses = addresses;
+    }
+
+    /**
+     * Load stored bans into the ban lists and start journaling changes.
+     *
+     * @throws IOException if the files could not be read or created.
+     */
+    public void open() throws IOException {
+        final long now = System.currentTimeMillis();
+        Files.createDirectories(snapshotFile.getParent());
+
+        final List<Map<String, BanEntry>> state = List.of(new LinkedHashMap<>(), new LinkedHashMap<>());
+        if (Files.exists(snapshotFile)) {
+            snapshotSize = Files.size(snapshotFile);
+            read(snapshotFile, SNAPSHOT_MAGIC, state);
+        }
+        final long valid = Files.exists(journalFile) ? read(journalFile, JOURNAL_MAGIC, state) : 0;
+
+        names.load(withoutExpired(state.get(BanListType.NAME.ordinal()).values(), now));
+        addresses.load(withoutExpired(state.get(BanListType.IP.ordinal()).values(), now));
+
+        journal = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (valid < HEADER_SIZE) {
+            journal.truncate(0);
+            journal.write(header(JOURNAL_MAGIC), 0);
+            journal.position(HEADER_SIZE);
+        } else {
+            // drop anything torn after the last valid record.
+            journal.truncate(valid);
+            journal.position(valid);
+        }
+
+        names.setJournal(this);
+        addresses.setJournal(this);
+
+        // close() writes what is queued, the writer must not keep the process alive by itself.
+        writer = new Thread(this::write, "Crimson Ban Journal Thread");
+        writer.setDaemon(true);
+        writer.start();
+
+        log.info("Loaded {} name bans and {} IP bans in {} ms.", names.size(), addresses.size(), System.currentTimeMillis() - now);
+    }
+
+    /**
+     * Journal a new ban.
+     *
+     * @param type  the list
+     * @param entry the ban
+     */
+    void add(BanListType type, BanEntry entry) {
+        queue.add(new Record(ADD, type, key(type, entry.target()), entry));
+    }
+
+    /**
+     * Journal a removed ban.
+     *
+     * @param type   the list
+     * @param target the banned name or address
+     */
+    void remove(BanListType type, String target) {
+        queue.add(new Record(REMOVE, type, key(type, target), null));
+    }
+
+    /**
+     * Write every queued change and stop.
+     */
+    @Override
+    public synchronized void close() {
+        if (writer == null) return;
+
+        queue.add(CLOSE);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } finally {
+            writer = null;
+            try {
+                journal.close();
+            } catch (IOException exception) {
+                log.warn("Failed to close the ban journal!", exception);
+            }
+        }
+    }
+
+    /**
+     * Group commit queued records until closed.
+     * <p>
+     * A batch that fails to write is kept and written again, together with anything queued since.
+     */
+    private void write() {
+        final List<Record> pending = new ArrayList<>();
+        boolean closing = false;
+        int closeAttempts = 0;
+
+        while (!closing || !pending.isEmpty()) {
+            try {
+                final Record next = pending.isEmpty() ? queue.take() : queue.poll(RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                if (next != null) pending.add(next);
+                queue.drainTo(pending);
+            } catch (InterruptedException exception) {
+                closing = true;
+            }
+            if (pending.removeIf(record -> record == CLOSE)) closing = true;
+            if (pending.isEmpty()) continue;
+
+            if (!append(pending)) {
+                if (closing && ++closeAttempts >= CLOSE_ATTEMPTS) {
+                    log.error("Giving up on the ban journal, {} ban changes were not saved!", pending.size());
+                    return;
+                }
+                continue;
+            }
+            pending.clear();
+
+            try {
+                if (journal.size() > Math.max(COMPACT_THRESHOLD, snapshotSize)) compact();
+            } catch (IOException exception) {
+                log.error("Failed to compact the ban journal!", exception);
+            }
+        }
+    }
+
+    /**
+     * Append records to the journal and force them to disk.
+     * <p>
+     * On failure the journal is cut back to the end of the last good record, so a torn record never
+     * hides the ones written after it.
+     *
+     * @param records the records
+     * @return {@code false} if they were not written.
+     */
+    private boolean append(List<Record> records) {
+        long good = tornAt;
+        try {
+            if (good >= 0) {
+                journal.truncate(good);
+                journal.position(good);
+                tornAt = -1;
+            }
+            good = journal.position();
+
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            for (Record record : records) frame(bytes, record);
+
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) journal.write(buffer);
+            journal.force(false);
+            return true;
+        } catch (IOException exception) {
+            log.error("Failed to write the ban journal, retrying!", exception);
+            if (good >= 0) {
+                try {
+                    journal.truncate(good);
+                    journal.position(good);
+                    tornAt = -1;
+                } catch (IOException truncate) {
+                    // tried again before the next write.
+                    tornAt = good;
+                    log.error("Failed to drop a torn ban journal record!", truncate);
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Write every current ban into a new snapshot and empty the journal.
+     * <p>
+     * Changes racing with this are journaled again afterwards, replaying them is harmless.
+     *
+     * @throws IOException if the snapshot could not be written.
+     */
+    private void compact() throws IOException {
+        final long start = System.currentTimeMillis();
+        final Path temporary = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(header(SNAPSHOT_MAGIC).array());
+        for (BanEntry entry : names.getBans()) frame(bytes, new Record(ADD, BanListType.NAME, null, entry));
+        for (BanEntry entry : addresses.getBans()) frame(bytes, new Record(ADD, BanListType.IP, null, entry));
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(true);
+        }
+        Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        snapshotSize = bytes.size();
+
+        journal.truncate(HEADER_SIZE);
+        journal.position(HEADER_SIZE);
+        journal.force(true);
+
+        log.debug("Compacted ban journal into {} bytes in {} ms.", snapshotSize, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Apply every valid record of a file to {@code state}.
+     *
+     * @param file  the file
+     * @param magic the expected magic
+     * @param state bans by key, for each list type.
+     * @return the end of the last valid record.
+     * @throws IOException if the file could not be read.
+     */
+    private static long read(Path file, int magic, List<Map<String, BanEntry>> state) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != magic || buffer.getInt() != VERSION) {
+                log.warn("Ignoring {}, it is not a valid ban file.", file);
+                return 0;
+            }
+
+            final CRC32 crc = new CRC32();
+            while (buffer.remaining() >= 8) {
+                final int start = buffer.position();
+                final int length = buffer.getInt();
+                final int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    buffer.position(start);
+                    break;
+                }
+
+                final ByteBuffer payload = buffer.slice(buffer.position(), length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    buffer.position(start);
+                    break;
+                }
+
+                apply(payload, state);
+                buffer.position(buffer.position() + length);
+            }
+
+            if (buffer.hasRemaining()) log.warn("Dropped {} trailing bytes from {}.", buffer.remaining(), file);
+            return buffer.position();
+        }
+    }
+
+    /**
+     * Apply a single record.
+     *
+     * @param payload the record payload
+     * @param state   bans by key, for each list type.
+     */
+    private static void apply(ByteBuffer payload, List<Map<String, BanEntry>> state) {
+        final byte operation = payload.get();
+        final BanListType type = BanListType.values()[payload.get()];
+        final Map<String, BanEntry> bans = state.get(type.ordinal());
+
+        if (operation == REMOVE) {
+            bans.remove(readString(payload));
+        } else {
+            final String target = readString(payload);
+            final String reason = readString(payload);
+            final long created = payload.getLong();
+            final long expiration = payload.getLong();
+
+            final BanEntry entry = new BanEntry(target, reason, new Date(created), expiration == -1 ? null : new Date(expiration));
+            bans.put(key(type, target), entry);
+        }
+    }
+
+    /**
+     * Write a framed record.
+     *
+     * @param out    the output
+     * @param record the record
+     * @throws IOException never
+     */
+    private static void frame(ByteArrayOutputStream out, Record record) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        final DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeByte(record.operation);
+        payload.writeByte(record.type.ordinal());
+
+        if (record.operation == REMOVE) {
+            writeString(payload, record.key);
+        } else {
+            final BanEntry entry = record.entry;
+            writeString(payload, entry.target());
+            writeString(payload, entry.reason());
+            payload.writeLong(entry.created().getTime());
+            payload.writeLong(entry.expiration() == null ? -1 : entry.expiration().getTime());
+        }
+
+        final byte[] array = bytes.toByteArray();
+        final CRC32 crc = new CRC32();
+        crc.update(array);
+
+        final DataOutputStream frame = new DataOutputStream(out);
+        frame.writeInt(array.length);
+        frame.writeInt((int) crc.getValue());
+        frame.write(array);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length == -1) return null;
+
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param magic the magic
+     * @return a file header
+     */
+    private static ByteBuffer header(int magic) {
+        return ByteBuffer.allocate(HEADER_SIZE).putInt(magic).putInt(VERSION).flip();
+    }
+
+    /**
+     * The key a ban is stored under, so removals match additions.
+     *
+     * @param type   the list
+     * @param target the banned name or address
+     * @return the key
+     */
+    private static String key(BanListType type, String target) {
+        return type == BanListType.NAME ? BanListByName.fold(target) : InetRange.parse(target).toString();
+    }
+
+    private static Collection<BanEntry> withoutExpired(Collection<BanEntry> bans, long now) {
+        bans.removeIf(entry -> entry.isExpired(now));
+        return bans;
+    }
+
+    /**
+     * A journal record.
+     *
+     * @param operation {@link #ADD} or {@link #REMOVE}
+     * @param type      the list
+     * @param key       the key, for removals.
+     * @param entry     the ban, for additions.
+     */
+    private record Record(byte operation, BanListType type, String key, BanEntry entry) {
+    }
+
+}
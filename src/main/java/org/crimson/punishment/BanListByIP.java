@@ -1,30 +1,204 @@
 package org.crimson.punishment;
 
 import com.google.common.base.Preconditions;
+import org.crimson.network.InetRange;
+import org.crimson.v3.utility.AddressBlocklist;
+import org.crimson.v3.utility.AddressTrie;
 
+import java.net.InetAddress;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * Represents a ban list that can only handle or include IP addresses.
+ * <p>
+ * Addresses and CIDR ranges are kept within an {@link AddressBlocklist}, lookups never lock or allocate
+ * beyond the address bytes. Load many bans at once with {@link #addBans(Collection)}.
+ * Temporary bans are removed by the {@link BanExpiryQueue} once due, checks never look at the expiration.
  */
-public final class BanListByIP implements BanList {
+public final class BanListByIP implements AddressBanList {
 
     /**
-     * Set of IP addresses that are currently banned.
-     * <p>
-     * This implementation uses a {@link CopyOnWriteArrayList} for fast read performance.
+     * Banned addresses and ranges.
      */
-    private final List<String> addresses = new CopyOnWriteArrayList<>();
+    private final AddressBlocklist addresses = new AddressBlocklist();
+
+    /**
+     * Ban details by range.
+     */
+    private final Map<InetRange, BanEntry> bans = new ConcurrentHashMap<>();
+
+    /**
+     * Expires temporary bans.
+     */
+    private final BanExpiryQueue expiry;
+
+    /**
+     * Expiry listeners.
+     */
+    private final List<Consumer<BanEntry>> expiryListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Stores changes, if persistent.
+     */
+    private volatile BanJournal journal;
+
+    /**
+     * Initialize
+     *
+     * @param expiry expires temporary bans.
+     */
+    public BanListByIP(BanExpiryQueue expiry) {
+        this.expiry = expiry;
+    }
+
+    public BanListByIP() {
+        this(new BanExpiryQueue());
+    }
 
     @Override
-    public void addBan(String playerName, String ipAddress, String reason, Date expiration) {
+    public synchronized void addBan(String playerName, String ipAddress, String reason, Date expiration) {
         Preconditions.checkNotNull(ipAddress, "The ip address may not be null.");
+
+        final InetRange range = InetRange.parse(ipAddress);
+        final BanEntry entry = new BanEntry(ipAddress, reason, new Date(), expiration);
+        bans.put(range, entry);
+        addresses.add(range.address(), range.prefixLength());
+
+        if (expiration != null) expiry.schedule(expiration.getTime(), () -> expire(range, entry));
+        if (journal != null) journal.add(BanListType.IP, entry);
+    }
+
+    /**
+     * Load stored bans as a single update, without journaling them again.
+     *
+     * @param entries the bans
+     */
+    synchronized void load(Collection<BanEntry> entries) {
+        final Map<InetRange, BanEntry> loaded = new LinkedHashMap<>();
+        for (BanEntry entry : entries) loaded.put(InetRange.parse(entry.target()), entry);
+
+        publish(loaded);
+        loaded.forEach((range, entry) -> {
+            if (entry.expiration() != null) expiry.schedule(entry.expiration().getTime(), () -> expire(range, entry));
+        });
+    }
+
+    /**
+     * @param journal stores changes from now on.
+     */
+    void setJournal(BanJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Permanently ban many addresses or ranges, published as a single update.
+     * Every value is parsed first, so nothing is banned if any of them is invalid.
+     *
+     * @param ipAddresses addresses or CIDR ranges
+     * @throws IllegalArgumentException if a value is not an address or range.
+     */
+    public synchronized void addBans(Collection<String> ipAddresses) {
+        final Date now = new Date();
+        final Map<InetRange, BanEntry> added = new LinkedHashMap<>();
+        for (String ipAddress : ipAddresses) added.put(InetRange.parse(ipAddress), new BanEntry(ipAddress, null, now, null));
+
+        publish(added);
+        if (journal != null) {
+            for (BanEntry entry : added.values()) journal.add(BanListType.IP, entry);
+        }
+    }
+
+    /**
+     * Add parsed bans to the lookup and the details as a single update.
+     *
+     * @param added the bans by range
+     */
+    private void publish(Map<InetRange, BanEntry> added) {
+        addresses.update(trie -> {
+            AddressTrie next = trie;
+            for (InetRange range : added.keySet()) next = next.add(range.address().getAddress(), range.prefixLength());
+            return next;
+        });
+        bans.putAll(added);
+    }
+
+    @Override
+    public synchronized boolean removeBan(String addressOrPlayerName) {
+        final InetRange range;
+        try {
+            range = InetRange.parse(addressOrPlayerName);
+        } catch (IllegalArgumentException exception) {
+            return false;
+        }
+
+        if (bans.remove(range) == null) return false;
+        addresses.remove(range.address(), range.prefixLength());
+        if (journal != null) journal.remove(BanListType.IP, range.toString());
+        return true;
+    }
+
+    @Override
+    public void addExpiryListener(Consumer<BanEntry> listener) {
+        expiryListeners.add(listener);
+    }
+
+    /**
+     * Remove a ban that is due, unless it was removed or replaced since.
+     *
+     * @param range the range
+     * @param entry the ban
+     */
+    private void expire(InetRange range, BanEntry entry) {
+        synchronized (this) {
+            if (!bans.remove(range, entry)) return;
+            addresses.remove(range.address(), range.prefixLength());
+            if (journal != null) journal.remove(BanListType.IP, range.toString());
+        }
+
+        for (Consumer<BanEntry> listener : expiryListeners) listener.accept(entry);
     }
 
     @Override
     public boolean isBanned(String addressOrPlayerName) {
-        return addresses.contains(addressOrPlayerName);
+        try {
+            return isBanned(InetRange.parse(addressOrPlayerName).address());
+        } catch (IllegalArgumentException exception) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isBanned(InetAddress address) {
+        return addresses.contains(address);
+    }
+
+    /**
+     * Get the ban of an exact address or range.
+     *
+     * @param ipAddress the address or range
+     * @return the ban or {@code null}
+     */
+    public BanEntry getBan(String ipAddress) {
+        return bans.get(InetRange.parse(ipAddress));
+    }
+
+    @Override
+    public Collection<BanEntry> getBans() {
+        return Collections.unmodifiableCollection(bans.values());
+    }
+
+    /**
+     * @return the amount of banned addresses and ranges.
+     */
+    public int size() {
+        return addresses.size();
     }
 }
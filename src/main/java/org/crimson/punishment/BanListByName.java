@@ -2,30 +2,213 @@ package org.crimson.punishment;
 
 import com.google.common.base.Preconditions;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * Represents a ban list that can only handle or include player names.
+ * <p>
+ * Names are case-insensitive. Bans are indexed by their case-folded name, and a {@link NameBloomFilter} in front
+ * of the index answers almost every check for a name that is not banned without touching the index.
+ * The filter grows as bans are added and is rebuilt once enough bans were removed to make it inaccurate.
+ * Temporary bans are removed by the {@link BanExpiryQueue} once due, checks never look at the expiration.
  */
 public final class BanListByName implements BanList {
 
     /**
-     * Set of names that are currently banned.
-     * <p>
-     * This implementation uses a {@link CopyOnWriteArrayList} for fast read performance.
+     * Initial filter capacity.
      */
-    private final List<String> names = new CopyOnWriteArrayList<>();
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Bans by case-folded name.
+     */
+    private final Map<String, BanEntry> bans = new ConcurrentHashMap<>();
+
+    /**
+     * The current filter, replaced when rebuilt.
+     */
+    private volatile NameBloomFilter filter = new NameBloomFilter(INITIAL_CAPACITY);
+
+    /**
+     * Names removed since the filter was last built, they still pass the filter.
+     */
+    private int removedSinceRebuild;
+
+    /**
+     * Expires temporary bans.
+     */
+    private final BanExpiryQueue expiry;
+
+    /**
+     * Expiry listeners.
+     */
+    private final List<Consumer<BanEntry>> expiryListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Stores changes, if persistent.
+     */
+    private volatile BanJournal journal;
+
+    /**
+     * Initialize
+     *
+     * @param expiry expires temporary bans.
+     */
+    public BanListByName(BanExpiryQueue expiry) {
+        this.expiry = expiry;
+    }
+
+    public BanListByName() {
+        this(new BanExpiryQueue());
+    }
 
     @Override
-    public void addBan(String playerName, String ipAddress, String reason, Date expiration) {
+    public synchronized void addBan(String playerName, String ipAddress, String reason, Date expiration) {
         Preconditions.checkNotNull(playerName, "The player name may not be null.");
+
+        final String name = fold(playerName);
+        final BanEntry entry = new BanEntry(playerName, reason, new Date(), expiration);
+        bans.put(name, entry);
+
+        if (bans.size() > filter.capacity()) {
+            rebuild();
+        } else {
+            filter.put(name);
+        }
+
+        if (expiration != null) expiry.schedule(expiration.getTime(), () -> expire(name, entry));
+        if (journal != null) journal.add(BanListType.NAME, entry);
+    }
+
+    /**
+     * Load stored bans, without journaling them again.
+     *
+     * @param entries the bans
+     */
+    synchronized void load(Collection<BanEntry> entries) {
+        for (BanEntry entry : entries) {
+            final String name = fold(entry.target());
+            bans.put(name, entry);
+            if (entry.expiration() != null) expiry.schedule(entry.expiration().getTime(), () -> expire(name, entry));
+        }
+        rebuild();
+    }
+
+    /**
+     * @param journal stores changes from now on.
+     */
+    void setJournal(BanJournal journal) {
+        this.journal = journal;
+    }
+
+    @Override
+    public synchronized boolean removeBan(String addressOrPlayerName) {
+        final String name = fold(addressOrPlayerName);
+        if (bans.remove(name) == null) return false;
+
+        removed();
+        if (journal != null) journal.remove(BanListType.NAME, name);
+        return true;
+    }
+
+    @Override
+    public void addExpiryListener(Consumer<BanEntry> listener) {
+        expiryListeners.add(listener);
+    }
+
+    /**
+     * Remove a ban that is due, unless it was removed or replaced since.
+     *
+     * @param name  the folded name
+     * @param entry the ban
+     */
+    private void expire(String name, BanEntry entry) {
+        synchronized (this) {
+            if (!bans.remove(name, entry)) return;
+            removed();
+            if (journal != null) journal.remove(BanListType.NAME, name);
+        }
+
+        for (Consumer<BanEntry> listener : expiryListeners) listener.accept(entry);
+    }
+
+    /**
+     * Rebuild the filter once enough names were removed.
+     */
+    private void removed() {
+        if (++removedSinceRebuild > filter.capacity() / 4) rebuild();
     }
 
     @Override
     public boolean isBanned(String addressOrPlayerName) {
-        return names.contains(addressOrPlayerName);
+        return filter.mightContain(addressOrPlayerName) && bans.containsKey(fold(addressOrPlayerName));
+    }
+
+    /**
+     * Get a ban.
+     *
+     * @param playerName the player name, any case.
+     * @return the ban or {@code null}
+     */
+    public BanEntry getBan(String playerName) {
+        return filter.mightContain(playerName) ? bans.get(fold(playerName)) : null;
+    }
+
+    @Override
+    public Collection<BanEntry> getBans() {
+        return Collections.unmodifiableCollection(bans.values());
+    }
+
+    /**
+     * @return the amount of bans.
+     */
+    public int size() {
+        return bans.size();
     }
-}
 
+    /**
+     * Build a new filter sized for the current bans.
+     */
+    private void rebuild() {
+        final NameBloomFilter rebuilt = new NameBloomFilter(Math.max(INITIAL_CAPACITY, bans.size() * 2));
+        for (String name : bans.keySet()) rebuilt.put(name);
+
+        this.filter = rebuilt;
+        this.removedSinceRebuild = 0;
+    }
+
+    /**
+     * Fold a name for case-insensitive comparison.
+     *
+     * @param name the name
+     * @return the folded name, the same instance if nothing changed.
+     */
+    static String fold(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            final char c = name.charAt(i);
+            if (fold(c) != c) {
+                final char[] chars = name.toCharArray();
+                for (int j = i; j < chars.length; j++) chars[j] = fold(chars[j]);
+                return new String(chars);
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Fold a single character.
+     *
+     * @param c the character
+     * @return the folded character
+     */
+    static char fold(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c < 128 ? c : Character.toLowerCase(c);
+    }
+}
@@ -0,0 +1,120 @@
+package org.crimson.punishment;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter over case-folded names.
+ * <p>
+ * Names are hashed character by character while folding, so checks never allocate.
+ * A negative answer is definite, a positive answer must be confirmed against the real index.
+ * Bits are only ever set, removing a name requires building a new filter.
+ */
+final class NameBloomFilter {
+
+    /**
+     * Bits per expected name, about a 1% false positive rate.
+     */
+    private static final int BITS_PER_NAME = 10;
+
+    /**
+     * Amount of hash functions.
+     */
+    private static final int HASHES = 7;
+
+    /**
+     * The bits.
+     */
+    private final AtomicLongArray bits;
+
+    /**
+     * Bit index mask, the amount of bits is a power of two.
+     */
+    private final long mask;
+
+    /**
+     * Amount of names this filter was sized for.
+     */
+    private final int capacity;
+
+    /**
+     * Initialize
+     *
+     * @param capacity the expected amount of names.
+     */
+    NameBloomFilter(int capacity) {
+        final long size = Math.max(64L, Long.highestOneBit((long) capacity * BITS_PER_NAME - 1) << 1);
+        this.bits = new AtomicLongArray((int) (size >>> 6));
+        this.mask = size - 1;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Add a name.
+     *
+     * @param name the name
+     */
+    void put(String name) {
+        final long hash = hash(name);
+        final long h1 = mix(hash), h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1L;
+
+        for (int i = 0; i < HASHES; i++) {
+            final long index = (h1 + i * h2) & mask;
+            final long bit = 1L << index;
+            bits.getAndAccumulate((int) (index >>> 6), bit, (current, value) -> current | value);
+        }
+    }
+
+    /**
+     * Check a name.
+     *
+     * @param name the name
+     * @return {@code false} if the name was definitely never added.
+     */
+    boolean mightContain(String name) {
+        final long hash = hash(name);
+        final long h1 = mix(hash), h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1L;
+
+        for (int i = 0; i < HASHES; i++) {
+            final long index = (h1 + i * h2) & mask;
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return amount of names this filter was sized for.
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * FNV-1a over the case-folded characters.
+     *
+     * @param name the name
+     * @return the hash
+     */
+    private static long hash(String name) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < name.length(); i++) {
+            hash ^= BanListByName.fold(name.charAt(i));
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Spread the bits of a hash.
+     *
+     * @param hash the hash
+     * @return the mixed hash
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+
+}
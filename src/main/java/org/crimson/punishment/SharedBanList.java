@@ -0,0 +1,233 @@
+package org.crimson.punishment;
+
+import com.google.common.base.Preconditions;
+import lombok.extern.log4j.Log4j2;
+import org.crimson.network.InetRange;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * A ban list shared by every Crimson server on the host through a {@link SharedBanTable}.
+ * <p>
+ * All servers read the same memory-mapped copy, so bans cost no heap and a ban is visible everywhere at once.
+ * Only the server configured as writer may add or remove bans, it also expires temporary bans.
+ * Name bans are keyed by their case-folded name. IP bans are keyed by prefix length and masked address,
+ * an address check probes each prefix length that is in use.
+ */
+@Log4j2
+public final class SharedBanList implements AddressBanList, AutoCloseable {
+
+    /**
+     * The list type.
+     */
+    private final BanListType type;
+
+    /**
+     * The most bans a table can hold, a quarter of its slots stay free.
+     */
+    public static final int MAXIMUM_CAPACITY = SharedBanTable.MAXIMUM_SLOTS / 4 * 3;
+
+    /**
+     * The table.
+     */
+    private final SharedBanTable table;
+
+    /**
+     * Expires temporary bans, writer only.
+     */
+    private final BanExpiryQueue expiry;
+
+    /**
+     * Expiry listeners.
+     */
+    private final List<Consumer<BanEntry>> expiryListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Open a shared ban list.
+     *
+     * @param type     the list type
+     * @param file     the table file
+     * @param capacity amount of bans the table can hold, if it is created.
+     * @param writer   if this server applies updates.
+     * @param expiry   expires temporary bans.
+     * @throws IOException if the table could not be opened.
+     */
+    public SharedBanList(BanListType type, Path file, int capacity, boolean writer, BanExpiryQueue expiry) throws IOException {
+        this.type = type;
+        this.table = new SharedBanTable(file, capacity + capacity / 3, writer);
+        this.expiry = expiry;
+
+        if (writer) {
+            // schedule bans that were stored before this server started.
+            table.forEach((key, entry) -> {
+                if (entry.expiration() != null) schedule(key, entry.expiration().getTime());
+            });
+        }
+        log.info("Opened shared {} ban table with {} bans as {}.", type.name().toLowerCase(Locale.ROOT), table.size(), writer ? "writer" : "reader");
+    }
+
+    @Override
+    public void addBan(String playerName, String ipAddress, String reason, Date expiration) {
+        final long created = System.currentTimeMillis();
+        final long expires = expiration == null ? -1 : expiration.getTime();
+
+        final byte[] key;
+        if (type == BanListType.NAME) {
+            Preconditions.checkNotNull(playerName, "The player name may not be null.");
+            key = nameKey(playerName);
+            table.put(key, reason, created, expires, -1, false);
+        } else {
+            Preconditions.checkNotNull(ipAddress, "The ip address may not be null.");
+            final InetRange range = InetRange.parse(ipAddress);
+            key = addressKey(range.address().getAddress(), range.prefixLength());
+            table.put(key, reason, created, expires, range.prefixLength(), key.length > 5);
+        }
+
+        if (expiration != null) schedule(key, expires);
+    }
+
+    @Override
+    public boolean removeBan(String addressOrPlayerName) {
+        try {
+            return table.remove(key(addressOrPlayerName));
+        } catch (IllegalArgumentException exception) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isBanned(String addressOrPlayerName) {
+        if (type == BanListType.NAME) {
+            final byte[] key = nameKey(addressOrPlayerName);
+            return key.length <= SharedBanTable.MAXIMUM_KEY_LENGTH && table.contains(key);
+        }
+
+        try {
+            return isBanned(InetRange.parse(addressOrPlayerName).address());
+        } catch (IllegalArgumentException exception) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isBanned(InetAddress address) {
+        if (type != BanListType.IP) return false;
+
+        final byte[] bytes = address.getAddress();
+        final long[] prefixes = table.prefixes(bytes.length == 16);
+        final byte[] key = new byte[bytes.length + 1];
+
+        for (int word = 0; word < prefixes.length; word++) {
+            long bits = prefixes[word];
+            while (bits != 0) {
+                final int prefix = word * 64 + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (prefix > bytes.length * 8) break;
+
+                mask(bytes, prefix, key);
+                if (table.contains(key)) return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Collection<BanEntry> getBans() {
+        final List<BanEntry> bans = new ArrayList<>(table.size());
+        table.forEach((key, entry) -> bans.add(new BanEntry(target(key), entry.reason(), entry.created(), entry.expiration())));
+        return bans;
+    }
+
+    @Override
+    public void addExpiryListener(Consumer<BanEntry> listener) {
+        expiryListeners.add(listener);
+    }
+
+    /**
+     * @return the amount of bans.
+     */
+    public int size() {
+        return table.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        table.close();
+    }
+
+    /**
+     * Schedule a ban to expire, on the writer.
+     *
+     * @param key        the key
+     * @param expiration when
+     */
+    private void schedule(byte[] key, long expiration) {
+        expiry.schedule(expiration, () -> {
+            final BanEntry entry = table.get(key, target(key));
+            // removed or renewed since.
+            if (entry == null || entry.expiration() == null || entry.expiration().getTime() != expiration) return;
+
+            table.remove(key);
+            for (Consumer<BanEntry> listener : expiryListeners) listener.accept(entry);
+        });
+    }
+
+    /**
+     * @param target a name or address, depending on type.
+     * @return the key
+     */
+    private byte[] key(String target) {
+        if (type == BanListType.NAME) return nameKey(target);
+
+        final InetRange range = InetRange.parse(target);
+        return addressKey(range.address().getAddress(), range.prefixLength());
+    }
+
+    /**
+     * @param key the key
+     * @return the name or address range it was created from.
+     */
+    private String target(byte[] key) {
+        if (type == BanListType.NAME) return new String(key, StandardCharsets.UTF_8);
+
+        try {
+            final InetRange range = new InetRange(InetAddress.getByAddress(Arrays.copyOfRange(key, 1, key.length)), key[0] & 0xFF);
+            return range.toString();
+        } catch (UnknownHostException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private static byte[] nameKey(String name) {
+        return BanListByName.fold(name).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] addressKey(byte[] address, int prefix) {
+        final byte[] key = new byte[address.length + 1];
+        mask(address, prefix, key);
+        return key;
+    }
+
+    /**
+     * Write the key of an address masked to a prefix length.
+     *
+     * @param address the address
+     * @param prefix  the prefix length
+     * @param key     the key, one byte longer than the address.
+     */
+    private static void mask(byte[] address, int prefix, byte[] key) {
+        key[0] = (byte) prefix;
+        for (int i = 0; i < address.length; i++) {
+            final int remaining = prefix - i * 8;
+            key[i + 1] = remaining >= 8 ? address[i] : remaining <= 0 ? 0 : (byte) (address[i] & (0xFF << (8 - remaining)));
+        }
+    }
+
+}
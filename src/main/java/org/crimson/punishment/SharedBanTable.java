@@ -0,0 +1,597 @@
+package org.crimson.punishment;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+/**
+ * An open-addressing hash table within a memory-mapped file, shared by every process on the host that maps it.
+ * <p>
+ * Exactly one process may write, enforced with a file lock. Readers never lock: the writer makes the sequence
+ * number odd, changes the table, then makes it even again. A reader records the sequence before it reads and
+ * retries if it changed or was odd, so it never acts on a half written slot.
+ * <p>
+ * The capacity is fixed when the file is created. Removed slots become tombstones, which are cleared
+ * once they make up a quarter of the table by moving entries back into them one change at a time.
+ * An entry is copied to its new slot before its old slot is given up, so a writer that dies never takes
+ * an entry with it and readers only ever wait on a single slot.
+ * <p>
+ * If the writer dies halfway through a change the sequence stays odd. Readers then read the table as it is
+ * after a short wait, and the next writer repairs the table before it changes anything.
+ */
+@Log4j2
+final class SharedBanTable implements AutoCloseable {
+
+    /**
+     * File header.
+     */
+    private static final int MAGIC = 0x43425354, VERSION = 1;
+
+    /**
+     * Header layout.
+     */
+    private static final int SEQUENCE = 8, CAPACITY = 16, USED = 24, TOMBSTONES = 32, PREFIXES = 40;
+    private static final int HEADER_SIZE = 128;
+
+    /**
+     * Slot layout.
+     */
+    private static final int HASH = 0, STATE = 8, KEY_LENGTH = 9, REASON_LENGTH = 10, CREATED = 16, EXPIRATION = 24,
+            KEY = 32, REASON = 80;
+    private static final int SLOT_SIZE = 128;
+
+    /**
+     * The most slots a table may have, the whole file must be mapped at once.
+     */
+    static final int MAXIMUM_SLOTS = 1 << 23;
+
+    /**
+     * Maximum key and reason length in bytes.
+     */
+    static final int MAXIMUM_KEY_LENGTH = REASON - KEY, MAXIMUM_REASON_LENGTH = SLOT_SIZE - REASON;
+
+    /**
+     * Slot states.
+     */
+    private static final byte EMPTY = 0, USED_SLOT = 1, TOMBSTONE = 2;
+
+    /**
+     * How long readers wait for a change to finish before assuming the writer died.
+     */
+    private static final long WRITER_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Atomic access to the sequence number.
+     */
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    /**
+     * The file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The whole file.
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Held by the writer.
+     */
+    private final FileLock writerLock;
+
+    /**
+     * Amount of slots and index mask.
+     */
+    private final int capacity, mask;
+
+    /**
+     * An odd sequence left behind by a writer that died, readers do not wait on it again.
+     */
+    private volatile long abandonedSequence = -1;
+
+    /**
+     * Open or create a table.
+     *
+     * @param file     the file
+     * @param capacity amount of slots if the file is created, rounded up to a power of two.
+     * @param writer   if this process is the writer.
+     * @throws IOException if the file is not valid or another process is already the writer.
+     */
+    SharedBanTable(Path file, int capacity, boolean writer) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            // the first process creates the file, others wait for it.
+            final FileLock creating = channel.lock(0, 8, false);
+            try {
+                if (channel.size() == 0) {
+                    final int slots = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+                    if (slots > MAXIMUM_SLOTS) throw new IOException("Shared ban table capacity is too large.");
+
+                    final MappedByteBuffer created = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slots * SLOT_SIZE);
+                    created.order(ByteOrder.nativeOrder());
+                    created.putInt(CAPACITY, slots);
+                    created.putInt(4, VERSION);
+                    created.putInt(0, MAGIC);
+                    created.force();
+                }
+            } finally {
+                creating.release();
+            }
+
+            final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            header.order(ByteOrder.nativeOrder());
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) throw new IOException(file + " is not a shared ban table.");
+
+            this.capacity = header.getInt(CAPACITY);
+            this.mask = this.capacity - 1;
+            this.buffer = channel.map(writer ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0,
+                    HEADER_SIZE + (long) this.capacity * SLOT_SIZE);
+            this.buffer.order(ByteOrder.nativeOrder());
+
+            if (writer) {
+                writerLock = tryLockWriter();
+                if (writerLock == null) throw new IOException("Another process is already writing " + file);
+                if (((long) LONGS.getAcquire(buffer, SEQUENCE) & 1) != 0) repair(file);
+            } else {
+                writerLock = null;
+            }
+        } catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * @return the writer lock, or {@code null} if another process or table already holds it.
+     * @throws IOException if locking failed
+     */
+    private FileLock tryLockWriter() throws IOException {
+        try {
+            return channel.tryLock(8, 8, false);
+        } catch (OverlappingFileLockException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Check if a key is stored.
+     *
+     * @param key the key
+     * @return {@code true} if so
+     */
+    boolean contains(byte[] key) {
+        final long hash = hash(key);
+        while (true) {
+            final long sequence = beginRead();
+            final boolean found = find(key, hash) >= 0;
+            if (endRead(sequence)) return found;
+        }
+    }
+
+    /**
+     * Read the stored entry of a key.
+     *
+     * @param key    the key
+     * @param target the target to use within the entry.
+     * @return the entry or {@code null}
+     */
+    BanEntry get(byte[] key, String target) {
+        final long hash = hash(key);
+        while (true) {
+            final long sequence = beginRead();
+            final int slot = find(key, hash);
+            final BanEntry entry = slot < 0 ? null : read(slot, target);
+            if (endRead(sequence)) return entry;
+        }
+    }
+
+    /**
+     * Prefix lengths in use, for address keys. Bits are set as prefixes are added and never cleared.
+     *
+     * @param v6 if IPv6 prefixes should be returned.
+     * @return a bitmask of prefix lengths, IPv4 uses a single word and IPv6 uses three.
+     */
+    long[] prefixes(boolean v6) {
+        while (true) {
+            final long sequence = beginRead();
+            final long[] prefixes = v6
+                    ? new long[]{buffer.getLong(PREFIXES + 8), buffer.getLong(PREFIXES + 16), buffer.getLong(PREFIXES + 24)}
+                    : new long[]{buffer.getLong(PREFIXES)};
+            if (endRead(sequence)) return prefixes;
+        }
+    }
+
+    /**
+     * Visit every stored entry, each one is read consistently.
+     *
+     * @param visitor receives the key and entry, the entry target is {@code null}.
+     */
+    void forEach(BiConsumer<byte[], BanEntry> visitor) {
+        for (int slot = 0; slot < capacity; slot++) {
+            byte[] key;
+            BanEntry entry;
+            while (true) {
+                final long sequence = beginRead();
+                final int offset = offset(slot);
+                if (buffer.get(offset + STATE) != USED_SLOT) {
+                    key = null;
+                    entry = null;
+                } else {
+                    key = new byte[Math.min(MAXIMUM_KEY_LENGTH, buffer.get(offset + KEY_LENGTH) & 0xFF)];
+                    buffer.get(offset + KEY, key);
+                    entry = read(slot, null);
+                }
+                if (endRead(sequence)) break;
+            }
+            if (key != null) visitor.accept(key, entry);
+        }
+    }
+
+    /**
+     * Store or replace an entry, writer only.
+     *
+     * @param key        the key
+     * @param reason     the reason, truncated to fit.
+     * @param created    when, in epoch milliseconds.
+     * @param expiration when it expires, {@code -1} if never.
+     * @param prefix     prefix length to record for address keys, {@code -1} otherwise.
+     * @param v6         if the prefix is of an IPv6 address.
+     * @throws IllegalStateException if the table is full.
+     */
+    synchronized void put(byte[] key, String reason, long created, long expiration, int prefix, boolean v6) {
+        checkWriter();
+        if (key.length > MAXIMUM_KEY_LENGTH) throw new IllegalArgumentException("Key is too long for the shared ban table.");
+
+        final long hash = hash(key);
+        int slot = find(key, hash);
+        if (slot < 0) {
+            if (used() + tombstones() >= capacity - capacity / 4) {
+                if (tombstones() > 0) rehash();
+                if (used() >= capacity - capacity / 4) throw new IllegalStateException("The shared ban table is full.");
+            }
+            slot = free(hash);
+        }
+
+        final byte[] reasonBytes = truncate(reason);
+        final int offset = offset(slot);
+        final byte previous = buffer.get(offset + STATE);
+
+        final long sequence = beginWrite();
+        buffer.putLong(offset + HASH, hash);
+        buffer.put(offset + KEY_LENGTH, (byte) key.length);
+        buffer.put(offset + KEY, key);
+        buffer.put(offset + REASON_LENGTH, (byte) (reasonBytes == null ? -1 : reasonBytes.length));
+        if (reasonBytes != null) buffer.put(offset + REASON, reasonBytes);
+        buffer.putLong(offset + CREATED, created);
+        buffer.putLong(offset + EXPIRATION, expiration);
+        buffer.put(offset + STATE, USED_SLOT);
+
+        if (previous != USED_SLOT) buffer.putLong(USED, used() + 1);
+        if (previous == TOMBSTONE) buffer.putLong(TOMBSTONES, tombstones() - 1);
+        if (prefix >= 0) {
+            final int word = PREFIXES + (v6 ? 8 + (prefix >>> 6) * 8 : 0);
+            buffer.putLong(word, buffer.getLong(word) | 1L << (v6 ? prefix & 63 : prefix));
+        }
+        endWrite(sequence);
+    }
+
+    /**
+     * Remove an entry, writer only.
+     *
+     * @param key the key
+     * @return {@code true} if it was stored.
+     */
+    synchronized boolean remove(byte[] key) {
+        checkWriter();
+
+        final int slot = find(key, hash(key));
+        if (slot < 0) return false;
+
+        final long sequence = beginWrite();
+        buffer.put(offset(slot) + STATE, TOMBSTONE);
+        buffer.putLong(USED, used() - 1);
+        buffer.putLong(TOMBSTONES, tombstones() + 1);
+        endWrite(sequence);
+
+        if (tombstones() > capacity / 4) rehash();
+        return true;
+    }
+
+    /**
+     * @return amount of stored entries.
+     */
+    int size() {
+        while (true) {
+            final long sequence = beginRead();
+            final long used = used();
+            if (endRead(sequence)) return (int) used;
+        }
+    }
+
+    /**
+     * @return {@code true} if this process is the writer.
+     */
+    boolean isWriter() {
+        return writerLock != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writerLock != null) {
+            buffer.force();
+            writerLock.release();
+        }
+        channel.close();
+    }
+
+    /**
+     * Clear every tombstone, see {@link #clear(int)}.
+     */
+    private void rehash() {
+        for (int slot = 0; slot < capacity; slot++) {
+            if (state(slot) == TOMBSTONE) clear(slot);
+        }
+    }
+
+    /**
+     * Clear a tombstone by moving entries of the same cluster back into it, until the hole it leaves
+     * is not probed through anymore and can be emptied.
+     * <p>
+     * Each move is its own change: the entry is copied into the hole first, then its old slot becomes the next hole.
+     * A lookup for the entry reaches the hole before its old slot, so the entry is found at every point.
+     *
+     * @param tombstone the tombstone
+     */
+    private void clear(int tombstone) {
+        int hole = tombstone;
+        int next = (hole + 1) & mask;
+        for (int probes = 0; probes < capacity && state(next) != EMPTY; probes++, next = (next + 1) & mask) {
+            if (state(next) != USED_SLOT) continue;
+
+            // only if the hole lies between the home slot of the entry and where it is now.
+            final int home = (int) buffer.getLong(offset(next) + HASH) & mask;
+            if (((hole - home) & mask) >= ((next - home) & mask)) continue;
+
+            move(next, hole);
+            hole = next;
+        }
+
+        // entries up to the next empty slot all start past the hole, none probe through it.
+        final long sequence = beginWrite();
+        buffer.put(offset(hole) + STATE, EMPTY);
+        buffer.putLong(TOMBSTONES, tombstones() - 1);
+        endWrite(sequence);
+    }
+
+    /**
+     * Copy an entry into a tombstone and make its old slot a tombstone, as one change.
+     * The state is written last, so a writer dying before leaves the copy a tombstone and one dying after leaves
+     * a duplicate, which {@link #repair(Path)} drops.
+     *
+     * @param from the slot of the entry
+     * @param to   the tombstone
+     */
+    private void move(int from, int to) {
+        final int source = offset(from), target = offset(to);
+
+        final long sequence = beginWrite();
+        buffer.put(target, buffer, source, STATE);
+        buffer.put(target + STATE + 1, buffer, source + STATE + 1, SLOT_SIZE - STATE - 1);
+        VarHandle.storeStoreFence();
+        buffer.put(target + STATE, USED_SLOT);
+        buffer.put(source + STATE, TOMBSTONE);
+        endWrite(sequence);
+    }
+
+    /**
+     * Repair a table the previous writer left halfway through a change, before this writer changes anything.
+     * <p>
+     * Slots whose key does not match their hash were torn and entries found earlier along their probe sequence
+     * were moved, both become tombstones. The counts are then taken from what is left and the sequence is made even.
+     * No entry is moved meanwhile, so nothing is lost if this writer dies too.
+     *
+     * @param file the file, for the log
+     */
+    private void repair(Path file) {
+        final long sequence = (long) LONGS.getAcquire(buffer, SEQUENCE);
+        log.warn("The previous writer of {} stopped halfway through a change, repairing it.", file);
+
+        int dropped = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            final int offset = offset(slot);
+            if (buffer.get(offset + STATE) != USED_SLOT) continue;
+
+            final int length = buffer.get(offset + KEY_LENGTH) & 0xFF;
+            final byte[] key = new byte[Math.min(length, MAXIMUM_KEY_LENGTH)];
+            buffer.get(offset + KEY, key);
+            if (length > MAXIMUM_KEY_LENGTH || hash(key) != buffer.getLong(offset + HASH)) {
+                buffer.put(offset + STATE, TOMBSTONE);
+                dropped++;
+            } else if (find(key, hash(key)) != slot) {
+                buffer.put(offset + STATE, TOMBSTONE);
+            }
+        }
+
+        long used = 0, tombstones = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            final byte state = state(slot);
+            if (state == USED_SLOT) used++;
+            else if (state == TOMBSTONE) tombstones++;
+        }
+        buffer.putLong(USED, used);
+        buffer.putLong(TOMBSTONES, tombstones);
+        endWrite(sequence);
+        buffer.force();
+        if (dropped > 0) log.warn("Dropped {} torn bans from {}.", dropped, file);
+
+        if (tombstones > capacity / 4) rehash();
+    }
+
+    /**
+     * Probe for a key.
+     *
+     * @return the slot or {@code -1}
+     */
+    private int find(byte[] key, long hash) {
+        int slot = (int) hash & mask;
+        for (int probes = 0; probes < capacity; probes++, slot = (slot + 1) & mask) {
+            final int offset = offset(slot);
+            final byte state = buffer.get(offset + STATE);
+            if (state == EMPTY) return -1;
+
+            if (state == USED_SLOT && buffer.getLong(offset + HASH) == hash
+                    && (buffer.get(offset + KEY_LENGTH) & 0xFF) == key.length && equals(offset + KEY, key)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the first slot that is not used along the probe sequence.
+     */
+    private int free(long hash) {
+        int slot = (int) hash & mask;
+        while (buffer.get(offset(slot) + STATE) == USED_SLOT) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private boolean equals(int offset, byte[] key) {
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(offset + i) != key[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Read an entry, the caller validates the sequence.
+     */
+    private BanEntry read(int slot, String target) {
+        final int offset = offset(slot);
+        final int reasonLength = buffer.get(offset + REASON_LENGTH);
+
+        String reason = null;
+        if (reasonLength >= 0) {
+            final byte[] bytes = new byte[Math.min(reasonLength, MAXIMUM_REASON_LENGTH)];
+            buffer.get(offset + REASON, bytes);
+            reason = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        final long expiration = buffer.getLong(offset + EXPIRATION);
+        return new BanEntry(target, reason, new Date(buffer.getLong(offset + CREATED)),
+                expiration == -1 ? null : new Date(expiration));
+    }
+
+    /**
+     * Wait for the writer to finish its change, backing off the longer it takes.
+     *
+     * @return the sequence to validate the read with, odd only if the writer died halfway through a change.
+     */
+    private long beginRead() {
+        long sequence = (long) LONGS.getAcquire(buffer, SEQUENCE);
+        if ((sequence & 1) == 0 || sequence == abandonedSequence) return sequence;
+
+        final long deadline = System.nanoTime() + WRITER_TIMEOUT_NANOS;
+        for (int spins = 0; ; spins++) {
+            sequence = (long) LONGS.getAcquire(buffer, SEQUENCE);
+            if ((sequence & 1) == 0) return sequence;
+
+            if (System.nanoTime() - deadline >= 0) {
+                // read the table as it is, until a new writer repairs it.
+                abandonedSequence = sequence;
+                log.warn("The shared ban table writer did not finish a change, it may have died.");
+                return sequence;
+            }
+
+            if (spins < 100) {
+                Thread.onSpinWait();
+            } else if (spins < 200) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(100_000);
+            }
+        }
+    }
+
+    private boolean endRead(long sequence) {
+        VarHandle.loadLoadFence();
+        return (long) LONGS.getOpaque(buffer, SEQUENCE) == sequence;
+    }
+
+    private long beginWrite() {
+        final long sequence = (long) LONGS.getOpaque(buffer, SEQUENCE) + 1;
+        LONGS.setOpaque(buffer, SEQUENCE, sequence);
+        VarHandle.storeStoreFence();
+        return sequence;
+    }
+
+    private void endWrite(long sequence) {
+        LONGS.setRelease(buffer, SEQUENCE, sequence + 1);
+    }
+
+    private byte state(int slot) {
+        return buffer.get(offset(slot) + STATE);
+    }
+
+    private long used() {
+        return buffer.getLong(USED);
+    }
+
+    private long tombstones() {
+        return buffer.getLong(TOMBSTONES);
+    }
+
+    private void checkWriter() {
+        if (writerLock == null) throw new IllegalStateException("This server is not the writer of the shared ban table.");
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    /**
+     * Encode a reason, cut to fit within a slot.
+     */
+    private static byte[] truncate(String reason) {
+        if (reason == null) return null;
+
+        String value = reason;
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        while (bytes.length > MAXIMUM_REASON_LENGTH) {
+            value = value.substring(0, value.length() - 1);
+            bytes = value.getBytes(StandardCharsets.UTF_8);
+        }
+        return bytes;
+    }
+
+    /**
+     * FNV-1a, mixed.
+     */
+    static long hash(byte[] key) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : key) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        return hash ^ (hash >>> 33);
+    }
+
+}
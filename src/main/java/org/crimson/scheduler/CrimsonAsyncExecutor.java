@@ -0,0 +1,137 @@
+package org.crimson.scheduler;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Runs blocking work on virtual threads.
+ */
+@Log4j2
+public final class CrimsonAsyncExecutor implements AsyncExecutor {
+
+    /**
+     * One virtual thread per task.
+     */
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+            .name("Crimson Async Thread-", 0)
+            .uncaughtExceptionHandler((thread, error) -> log.error("Async thread caught an exception!", error))
+            .factory());
+
+    /**
+     * Runs on the main thread.
+     */
+    private final Executor sync;
+
+    /**
+     * Initialize
+     *
+     * @param scheduler the main thread scheduler
+     */
+    public CrimsonAsyncExecutor(CrimsonScheduler scheduler) {
+        // a rejection must reach the caller, a continuation would otherwise never complete.
+        this.sync = command -> {
+            final CompletableFuture<Void> submitted = scheduler.runSync(command);
+            if (submitted.state() == Future.State.FAILED && submitted.exceptionNow() instanceof RejectedExecutionException rejected) {
+                throw rejected;
+            }
+        };
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        executor.execute(command);
+    }
+
+    @Override
+    public CompletableFuture<Void> run(BlockingTask task) {
+        return supply(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    @Override
+    public <T> CompletableFuture<T> supply(Callable<T> task) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        try {
+            final Future<?> running = executor.submit(() -> {
+                try {
+                    result.complete(task.call());
+                } catch (Throwable any) {
+                    result.completeExceptionally(any);
+                }
+            });
+
+            // propagate cancellation into the virtual thread.
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) running.cancel(true);
+            });
+        } catch (RejectedExecutionException exception) {
+            result.completeExceptionally(exception);
+        }
+        return result;
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> all(Collection<? extends Callable<T>> tasks) {
+        final CompletableFuture<List<T>> result = new CompletableFuture<>();
+        final List<CompletableFuture<T>> children = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) children.add(supply(task));
+
+        // the first failure fails the whole scope and cancels the rest.
+        for (CompletableFuture<T> child : children) {
+            child.whenComplete((value, error) -> {
+                if (error != null && result.completeExceptionally(unwrap(error))) {
+                    children.forEach(other -> other.cancel(true));
+                }
+            });
+        }
+
+        CompletableFuture.allOf(children.toArray(new CompletableFuture<?>[0])).thenRun(() -> {
+            final List<T> values = new ArrayList<>(children.size());
+            for (CompletableFuture<T> child : children) values.add(child.join());
+            result.complete(values);
+        });
+
+        result.whenComplete((values, error) -> {
+            if (result.isCancelled()) children.forEach(child -> child.cancel(true));
+        });
+        return result;
+    }
+
+    @Override
+    public Executor sync() {
+        return sync;
+    }
+
+    /**
+     * Stop accepting tasks and wait a short time for running ones.
+     */
+    public void shutdown() {
+        executor.shutdown();
+
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                log.warn("Async tasks did not finish in time, interrupting them.");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException exception) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param error the error
+     * @return the cause if {@code error} only wraps it.
+     */
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+}
@@ -0,0 +1,246 @@
+package org.crimson.scheduler;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs tasks on the main server thread.
+ * <p>
+ * Tasks submitted from other threads go through a bounded {@link MpscArrayQueue}, if it is full the task is rejected
+ * instead of growing without limit. Each tick only spends {@link #TASK_BUDGET_NANOS} draining the queue,
+ * anything left over runs next tick. If a tick overspends its budget, the difference is taken from the next tick.
+ * Delayed and repeating tasks live within a {@link TimingWheel} and always run on their tick.
+ * <p>
+ * Once drained for shutdown, delayed and repeating tasks are cancelled and new tasks are rejected,
+ * so nothing waits on a task that will never run.
+ */
+@Log4j2
+public final class CrimsonScheduler {
+
+    /**
+     * Maximum amount of queued tasks.
+     */
+    public static final int QUEUE_CAPACITY = 1 << 16;
+
+    /**
+     * Time each tick may spend on queued tasks.
+     */
+    private static final long TASK_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * Each tick gets at least this much, even when paying back an overrun.
+     */
+    private static final long MINIMUM_TASK_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Queued tasks.
+     */
+    private final MpscArrayQueue<CrimsonServerTask> queue = new MpscArrayQueue<>(QUEUE_CAPACITY);
+
+    /**
+     * Delayed and repeating tasks.
+     */
+    private final TimingWheel wheel = new TimingWheel();
+
+    /**
+     * The main server thread.
+     */
+    private final Thread mainThread;
+
+    /**
+     * How much the last tick overran its budget.
+     */
+    private long overrun;
+
+    /**
+     * Set once drained, tasks are rejected from then on.
+     */
+    private volatile boolean shutdown;
+
+    public CrimsonScheduler(Thread mainThread) {
+        this.mainThread = mainThread;
+    }
+
+    /**
+     * Run a task on the next tick.
+     *
+     * @param task the task
+     * @return a future completed once the task has run.
+     */
+    public CompletableFuture<Void> runSync(Runnable task) {
+        return submit(new CrimsonServerTask(task, 0, 0));
+    }
+
+    /**
+     * Compute a value on the next tick.
+     *
+     * @param task the task
+     * @param <T>  the type
+     * @return a future completed with the value.
+     */
+    public <T> CompletableFuture<T> supplySync(Supplier<T> task) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        submit(new CrimsonServerTask(() -> result.complete(task.get()), 0, 0))
+                .whenComplete((ignored, error) -> {
+                    if (error != null) result.completeExceptionally(error);
+                });
+        return result;
+    }
+
+    /**
+     * Run a task after a delay.
+     *
+     * @param task  the task
+     * @param delay the delay in ticks
+     * @return the task
+     */
+    public ServerTask runLater(Runnable task, long delay) {
+        return submit(new CrimsonServerTask(task, delay, 0));
+    }
+
+    /**
+     * Run a task repeatedly until cancelled.
+     *
+     * @param task   the task
+     * @param delay  the delay before the first run, in ticks
+     * @param period the period, in ticks
+     * @return the task
+     */
+    public ServerTask runRepeating(Runnable task, long delay, long period) {
+        if (period <= 0) throw new IllegalArgumentException("Period must be at least 1 tick.");
+        return submit(new CrimsonServerTask(task, Math.max(1L, delay), period));
+    }
+
+    /**
+     * Submit a task.
+     *
+     * @param task the task
+     * @return the task
+     */
+    private CrimsonServerTask submit(CrimsonServerTask task) {
+        if (shutdown) {
+            task.completeExceptionally(new RejectedExecutionException("The server is shutting down."));
+        } else if (task.delay > 0 && Thread.currentThread() == mainThread) {
+            wheel.schedule(task, task.delay);
+        } else if (!queue.offer(task)) {
+            task.completeExceptionally(new RejectedExecutionException("Server task queue is full."));
+        } else {
+            // drain may have finished after the check above, then nothing would take this task.
+            VarHandle.fullFence();
+            if (shutdown) rejectQueued();
+        }
+        return task;
+    }
+
+    /**
+     * Run a single tick, only from the main thread.
+     */
+    public void tick() {
+        wheel.advance(this::run);
+
+        final long budget = Math.max(MINIMUM_TASK_BUDGET_NANOS, TASK_BUDGET_NANOS - overrun);
+        final long start = System.nanoTime();
+        long elapsed = 0;
+
+        CrimsonServerTask task;
+        while (elapsed < budget && (task = queue.poll()) != null) {
+            accept(task);
+            elapsed = System.nanoTime() - start;
+        }
+
+        overrun = Math.max(0L, elapsed - budget);
+    }
+
+    /**
+     * Run every queued task regardless of budget and cancel delayed and repeating ones, used when shutting down.
+     * <p>
+     * Tasks submitted from then on are rejected.
+     */
+    public void drain() {
+        synchronized (queue) {
+            // tasks may still hand work to each other, then anything submitted meanwhile still runs.
+            runQueued();
+            shutdown = true;
+            runQueued();
+            wheel.clear(scheduled -> scheduled.cancel(false));
+        }
+    }
+
+    /**
+     * Run every queued task that is not delayed and cancel the rest, while holding the queue lock.
+     */
+    private void runQueued() {
+        CrimsonServerTask task;
+        while ((task = queue.poll()) != null) {
+            if (task.delay == 0) {
+                run(task);
+            } else {
+                task.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Reject tasks queued after draining, from any thread. The lock makes the holder the only consumer of the queue.
+     */
+    private void rejectQueued() {
+        synchronized (queue) {
+            CrimsonServerTask task;
+            while ((task = queue.poll()) != null) {
+                task.completeExceptionally(new RejectedExecutionException("The server is shutting down."));
+            }
+        }
+    }
+
+    /**
+     * Handle a task that came off the queue.
+     *
+     * @param task the task
+     */
+    private void accept(CrimsonServerTask task) {
+        if (task.delay > 0 && !task.scheduled) {
+            wheel.schedule(task, task.delay);
+        } else {
+            run(task);
+        }
+    }
+
+    /**
+     * Run a task.
+     *
+     * @param task the task
+     */
+    private void run(CrimsonServerTask task) {
+        if (task.isDone()) return;
+
+        try {
+            task.task.run();
+            if (!task.isRepeating()) task.complete(null);
+        } catch (Exception any) {
+            log.error("Exception caught while running a server task!", any);
+            if (!task.isRepeating()) task.completeExceptionally(any);
+        }
+
+        if (task.isRepeating() && !task.isDone()) wheel.schedule(task, task.period);
+    }
+
+    /**
+     * @return the amount of queued tasks.
+     */
+    public int getQueuedTasks() {
+        return queue.size();
+    }
+
+    /**
+     * @return the amount of delayed or repeating tasks.
+     */
+    public int getScheduledTasks() {
+        return wheel.size();
+    }
+
+}
@@ -0,0 +1,48 @@
+package org.crimson.scheduler;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A task that runs on the main server thread.
+ * <p>
+ * Also a node within the {@link TimingWheel}, so scheduling does not allocate anything else.
+ */
+final class CrimsonServerTask extends CompletableFuture<Void> implements ServerTask {
+
+    /**
+     * What to run.
+     */
+    final Runnable task;
+
+    /**
+     * Delay and period in ticks, a period of {@code 0} runs once.
+     */
+    final long delay, period;
+
+    /**
+     * The tick this task should next run at.
+     */
+    long deadline;
+
+    /**
+     * If this task has been placed within the wheel.
+     */
+    boolean scheduled;
+
+    /**
+     * Next task within the same wheel slot.
+     */
+    CrimsonServerTask next;
+
+    CrimsonServerTask(Runnable task, long delay, long period) {
+        this.task = task;
+        this.delay = delay;
+        this.period = period;
+    }
+
+    @Override
+    public boolean isRepeating() {
+        return period > 0;
+    }
+
+}
@@ -0,0 +1,109 @@
+package org.crimson.scheduler;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, array backed multi-producer single-consumer queue.
+ * <p>
+ * Producers claim a slot by moving the producer index forward, then publish the element into it.
+ * Nothing is allocated per element, unlike {@link java.util.concurrent.ConcurrentLinkedQueue}.
+ * Only one thread may ever call {@link #poll()}.
+ *
+ * @param <E> the element type
+ */
+public final class MpscArrayQueue<E> {
+
+    /**
+     * The elements.
+     */
+    private final AtomicReferenceArray<E> buffer;
+
+    /**
+     * Capacity and index mask.
+     */
+    private final int capacity, mask;
+
+    /**
+     * Next slot to be claimed by a producer.
+     */
+    private final AtomicLong producerIndex = new AtomicLong();
+
+    /**
+     * Next slot to be consumed, only written by the consumer.
+     */
+    private volatile long consumerIndex;
+
+    /**
+     * Initialize
+     *
+     * @param capacity the capacity, rounded up to a power of two.
+     */
+    public MpscArrayQueue(int capacity) {
+        if (capacity < 2) throw new IllegalArgumentException("Capacity must be at least 2.");
+
+        this.capacity = 1 << (32 - Integer.numberOfLeadingZeros(capacity - 1));
+        this.mask = this.capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(this.capacity);
+    }
+
+    /**
+     * Add an element, from any thread.
+     *
+     * @param element the element
+     * @return {@code false} if the queue is full.
+     */
+    public boolean offer(E element) {
+        Objects.requireNonNull(element);
+
+        long index;
+        do {
+            index = producerIndex.get();
+            if (index - consumerIndex >= capacity) return false;
+        } while (!producerIndex.compareAndSet(index, index + 1));
+
+        buffer.lazySet((int) index & mask, element);
+        return true;
+    }
+
+    /**
+     * Remove the next element, only from the consumer thread.
+     *
+     * @return the element or {@code null} if empty.
+     */
+    public E poll() {
+        final long index = consumerIndex;
+        final int offset = (int) index & mask;
+
+        E element = buffer.get(offset);
+        if (element == null) {
+            if (index == producerIndex.get()) return null;
+
+            // the slot was claimed but the producer has not published it yet.
+            do {
+                Thread.onSpinWait();
+                element = buffer.get(offset);
+            } while (element == null);
+        }
+
+        buffer.lazySet(offset, null);
+        consumerIndex = index + 1;
+        return element;
+    }
+
+    /**
+     * @return the approximate amount of elements.
+     */
+    public int size() {
+        return (int) Math.max(0L, producerIndex.get() - consumerIndex);
+    }
+
+    /**
+     * @return the capacity
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+}
@@ -0,0 +1,130 @@
+package org.crimson.scheduler;
+
+import java.util.function.Consumer;
+
+/**
+ * A hashed timing wheel with one slot per tick.
+ * <p>
+ * Tasks are linked within their slot, scheduling and expiring are O(1) per task.
+ * A task further away than the wheel size stays in its slot until its deadline comes around.
+ * Only used from the main server thread.
+ */
+final class TimingWheel {
+
+    /**
+     * Amount of slots, 25.6 seconds at 20 ticks per second.
+     */
+    private static final int SLOTS = 512;
+    private static final int MASK = SLOTS - 1;
+
+    /**
+     * Head and tail of each slot, tasks in a slot run in the order they were scheduled.
+     */
+    private final CrimsonServerTask[] heads = new CrimsonServerTask[SLOTS], tails = new CrimsonServerTask[SLOTS];
+
+    /**
+     * The current tick.
+     */
+    private long tick;
+
+    /**
+     * Amount of scheduled tasks.
+     */
+    private int size;
+
+    /**
+     * Schedule a task.
+     *
+     * @param task  the task
+     * @param delay ticks from now, at least 1.
+     */
+    void schedule(CrimsonServerTask task, long delay) {
+        task.deadline = tick + Math.max(1L, delay);
+        task.scheduled = true;
+        insert(task);
+    }
+
+    /**
+     * Advance one tick and hand every task that is due to {@code due}.
+     * <p>
+     * Cancelled tasks are dropped, repeating tasks must be rescheduled by {@code due}.
+     *
+     * @param due the consumer
+     */
+    void advance(Consumer<CrimsonServerTask> due) {
+        tick++;
+
+        final int slot = (int) (tick & MASK);
+        CrimsonServerTask task = heads[slot];
+        heads[slot] = tails[slot] = null;
+
+        while (task != null) {
+            final CrimsonServerTask next = task.next;
+            task.next = null;
+            size--;
+
+            if (task.isDone()) {
+                // cancelled.
+                task.scheduled = false;
+            } else if (task.deadline <= tick) {
+                task.scheduled = false;
+                due.accept(task);
+            } else {
+                insert(task);
+            }
+            task = next;
+        }
+    }
+
+    /**
+     * Remove every scheduled task and hand it to {@code removed}.
+     *
+     * @param removed the consumer
+     */
+    void clear(Consumer<CrimsonServerTask> removed) {
+        for (int slot = 0; slot < SLOTS; slot++) {
+            CrimsonServerTask task = heads[slot];
+            heads[slot] = tails[slot] = null;
+
+            while (task != null) {
+                final CrimsonServerTask next = task.next;
+                task.next = null;
+                task.scheduled = false;
+                removed.accept(task);
+                task = next;
+            }
+        }
+        size = 0;
+    }
+
+    /**
+     * Append to the tail of the slot.
+     *
+     * @param task the task
+     */
+    private void insert(CrimsonServerTask task) {
+        final int slot = (int) (task.deadline & MASK);
+        if (tails[slot] == null) {
+            heads[slot] = task;
+        } else {
+            tails[slot].next = task;
+        }
+        tails[slot] = task;
+        size++;
+    }
+
+    /**
+     * @return the current tick.
+     */
+    long tick() {
+        return tick;
+    }
+
+    /**
+     * @return amount of scheduled tasks.
+     */
+    int size() {
+        return size;
+    }
+
+}
@@ -0,0 +1,171 @@
+package org.crimson.startup;
+
+import lombok.extern.log4j.Log4j2;
+import org.crimson.scheduler.AsyncExecutor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs server startup as phases that each start once their dependencies finished.
+ * <p>
+ * Independent phases run at the same time on virtual threads. A phase that fails skips every phase depending on it.
+ */
+@Log4j2
+public final class StartupGraph {
+
+    /**
+     * Phases by name, in the order they were added.
+     */
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+
+    /**
+     * Runs phases.
+     */
+    private final AsyncExecutor async;
+
+    /**
+     * Initialize
+     *
+     * @param async runs phases
+     */
+    public StartupGraph(AsyncExecutor async) {
+        this.async = async;
+    }
+
+    /**
+     * Add a phase, dependencies must be added before it so the graph can not contain cycles.
+     *
+     * @param name         the name
+     * @param task         the task, throw to fail startup.
+     * @param dependencies names of phases that must finish first.
+     * @return this
+     */
+    public StartupGraph phase(String name, AsyncExecutor.BlockingTask task, String... dependencies) {
+        final List<Phase> after = new ArrayList<>(dependencies.length);
+        for (String dependency : dependencies) {
+            final Phase phase = phases.get(dependency);
+            if (phase == null) throw new IllegalArgumentException("Unknown startup phase " + dependency + " required by " + name);
+            after.add(phase);
+        }
+
+        if (phases.putIfAbsent(name, new Phase(name, task, after)) != null) {
+            throw new IllegalArgumentException("Startup phase " + name + " already exists.");
+        }
+        return this;
+    }
+
+    /**
+     * Run every phase and wait for them, then log how long each took.
+     *
+     * @return {@code true} if every phase finished.
+     */
+    public boolean run() {
+        final long origin = System.nanoTime();
+        for (Phase phase : phases.values()) phase.start(origin);
+
+        boolean result = true;
+        try {
+            CompletableFuture.allOf(phases.values().stream().map(phase -> phase.future).toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException ignored) {
+            result = false;
+        }
+
+        report(System.nanoTime() - origin);
+        return result;
+    }
+
+    /**
+     * Log the time of each phase.
+     *
+     * @param elapsed the total time in nanoseconds
+     */
+    private void report(long elapsed) {
+        long sum = 0;
+        log.info("Startup phases:");
+        for (Phase phase : phases.values()) {
+            if (phase.error != null) {
+                log.error("  {} failed!", phase.name, phase.error);
+            } else if (phase.end == 0) {
+                log.warn("  {} skipped", phase.name);
+            } else {
+                final long took = phase.end - phase.begin;
+                sum += took;
+                log.info("  {} took {} ms, started at {} ms", phase.name, millis(took), millis(phase.begin));
+            }
+        }
+        log.info("Startup phases took {} ms, {} ms of work.", millis(elapsed), millis(sum));
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * A single phase.
+     */
+    private final class Phase {
+
+        /**
+         * The name
+         */
+        private final String name;
+
+        /**
+         * The task
+         */
+        private final AsyncExecutor.BlockingTask task;
+
+        /**
+         * Phases that must finish first.
+         */
+        private final List<Phase> dependencies;
+
+        /**
+         * Completed once the phase finished.
+         */
+        private CompletableFuture<Void> future;
+
+        /**
+         * Start and end, in nanoseconds since startup began.
+         */
+        private volatile long begin, end;
+
+        /**
+         * The error, if the phase itself failed.
+         */
+        private volatile Throwable error;
+
+        private Phase(String name, AsyncExecutor.BlockingTask task, List<Phase> dependencies) {
+            this.name = name;
+            this.task = task;
+            this.dependencies = dependencies;
+        }
+
+        /**
+         * Start once every dependency finished.
+         *
+         * @param origin when startup began
+         */
+        private void start(long origin) {
+            final CompletableFuture<?>[] after = dependencies.stream().map(phase -> phase.future).toArray(CompletableFuture[]::new);
+            future = CompletableFuture.allOf(after).thenCompose(ignored -> async.run(() -> {
+                begin = System.nanoTime() - origin;
+                try {
+                    task.run();
+                } catch (Throwable any) {
+                    error = any;
+                    throw any;
+                }
+                end = System.nanoTime() - origin;
+            }));
+        }
+
+    }
+
+}
@@ -0,0 +1,109 @@
+package org.crimson.tick;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs the main server tick at a fixed rate.
+ * <p>
+ * Each tick is scheduled against an absolute deadline, so a short tick does not make the next one early and
+ * sleep inaccuracy does not accumulate. After a slow tick the loop runs the missed ticks back to back to catch up,
+ * but never more than {@link #MAX_CATCH_UP_TICKS}, anything further behind is skipped.
+ */
+@Log4j2
+public final class ServerTickLoop {
+
+    /**
+     * Ticks per second.
+     */
+    public static final int TICKS_PER_SECOND = 20;
+
+    /**
+     * Length of one tick.
+     */
+    public static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1) / TICKS_PER_SECOND;
+
+    /**
+     * The most ticks that will be run back to back to catch up.
+     */
+    private static final int MAX_CATCH_UP_TICKS = 10;
+
+    /**
+     * Do not warn about skipped ticks more than once every 15 seconds.
+     */
+    private static final long WARNING_INTERVAL = TimeUnit.SECONDS.toNanos(15);
+
+    /**
+     * Statistics
+     */
+    private final TickStatistics statistics = new TickStatistics();
+
+    /**
+     * Last time a warning was logged.
+     */
+    private long lastWarning = System.nanoTime() - WARNING_INTERVAL;
+
+    /**
+     * Run ticks on the calling thread until {@code running} is {@code false}.
+     *
+     * @param running the running state
+     * @param tick    the tick
+     */
+    public void run(BooleanSupplier running, Runnable tick) {
+        long deadline = System.nanoTime();
+
+        while (running.getAsBoolean()) {
+            final long start = System.nanoTime();
+            try {
+                tick.run();
+            } catch (Exception any) {
+                log.error("Exception caught while ticking the server!", any);
+            }
+            final long end = System.nanoTime();
+
+            deadline += TICK_NANOS;
+            final long behind = end - deadline;
+            statistics.record(start, end - start, behind > 0);
+
+            if (behind > MAX_CATCH_UP_TICKS * TICK_NANOS) {
+                final long skipped = behind / TICK_NANOS;
+                if (end - lastWarning >= WARNING_INTERVAL) {
+                    lastWarning = end;
+
+                    final TickHistogram histogram = statistics.getHistogram();
+                    log.warn("Can't keep up! Running {} ms behind, skipping {} ticks. (p50={} ms, p99={} ms, max={} ms)",
+                            TimeUnit.NANOSECONDS.toMillis(behind), skipped,
+                            String.format("%.1f", histogram.percentile(50)),
+                            String.format("%.1f", histogram.percentile(99)),
+                            String.format("%.1f", histogram.max()));
+                }
+                deadline = end;
+            }
+
+            waitUntil(deadline);
+        }
+    }
+
+    /**
+     * Park until the deadline.
+     *
+     * @param deadline the deadline, relative to {@link System#nanoTime()}
+     */
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /**
+     * @return the tick statistics.
+     */
+    public TickStatistics getStatistics() {
+        return statistics;
+    }
+
+}
@@ -0,0 +1,79 @@
+package org.crimson.tick;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of tick durations with 0.1 ms buckets up to 100 ms, anything longer is counted as overflow.
+ * <p>
+ * Only the tick thread records, any thread may read.
+ */
+public final class TickHistogram {
+
+    /**
+     * Bucket width in nanoseconds.
+     */
+    private static final long BUCKET_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * Amount of buckets, the last bucket holds overflow.
+     */
+    private static final int BUCKETS = 1001;
+
+    /**
+     * Bucket counts.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Total ticks recorded and the longest tick.
+     */
+    private volatile long count, max;
+
+    /**
+     * Record a tick.
+     *
+     * @param nanos the tick duration
+     */
+    void record(long nanos) {
+        final int bucket = (int) Math.min(BUCKETS - 1, Math.max(0L, nanos) / BUCKET_NANOS);
+        counts.lazySet(bucket, counts.get(bucket) + 1);
+
+        count = count + 1;
+        if (nanos > max) max = nanos;
+    }
+
+    /**
+     * @return the amount of ticks recorded.
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @return the longest tick in milliseconds.
+     */
+    public double max() {
+        return max / 1e6;
+    }
+
+    /**
+     * Get a percentile.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the upper bound of the bucket in milliseconds, or {@link #max()} for overflow.
+     */
+    public double percentile(double percentile) {
+        final long total = count;
+        if (total == 0) return 0.0;
+
+        final long target = Math.max(1L, (long) Math.ceil(total * (percentile / 100.0)));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            seen += counts.get(i);
+            if (seen >= target) return (i + 1) * BUCKET_NANOS / 1e6;
+        }
+        return max();
+    }
+
+}
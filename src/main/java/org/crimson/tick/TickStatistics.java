@@ -0,0 +1,115 @@
+package org.crimson.tick;
+
+/**
+ * Rolling tick statistics.
+ * <p>
+ * Written by the tick thread once per tick, the published values are volatile and can be read from anywhere.
+ */
+public final class TickStatistics {
+
+    /**
+     * Ticks within the rolling window, 5 seconds.
+     */
+    private static final int WINDOW = 100;
+
+    /**
+     * Tick start times and durations within the window.
+     */
+    private final long[] starts = new long[WINDOW], durations = new long[WINDOW];
+
+    /**
+     * Tick durations since startup.
+     */
+    private final TickHistogram histogram = new TickHistogram();
+
+    /**
+     * Sum of durations within the window.
+     */
+    private long durationSum;
+
+    /**
+     * Ticks recorded so far.
+     */
+    private volatile long ticks;
+
+    /**
+     * Published rolling values.
+     */
+    private volatile double ticksPerSecond = ServerTickLoop.TICKS_PER_SECOND, millisecondsPerTick;
+
+    /**
+     * Last tick that fell behind.
+     */
+    private long lastBehind = -WINDOW;
+
+    /**
+     * If the server is overloaded.
+     */
+    private volatile boolean overloaded;
+
+    /**
+     * Record a finished tick.
+     *
+     * @param start    when the tick started
+     * @param duration how long it took
+     * @param behind   if the loop is running behind its schedule after this tick.
+     */
+    void record(long start, long duration, boolean behind) {
+        final long tick = ticks;
+        final int index = (int) (tick % WINDOW);
+        final long oldestStart = starts[index];
+
+        durationSum += duration - durations[index];
+        starts[index] = start;
+        durations[index] = duration;
+        histogram.record(duration);
+        if (behind) lastBehind = tick;
+
+        final int samples = (int) Math.min(tick + 1, WINDOW);
+        millisecondsPerTick = durationSum / (double) samples / 1e6;
+
+        // the oldest start is WINDOW ticks ago once the window is full.
+        if (tick >= WINDOW) {
+            ticksPerSecond = Math.min(ServerTickLoop.TICKS_PER_SECOND, WINDOW * 1e9 / (start - oldestStart));
+        }
+
+        overloaded = millisecondsPerTick > ServerTickLoop.TICK_NANOS / 1e6 || tick - lastBehind < WINDOW;
+        ticks = tick + 1;
+    }
+
+    /**
+     * @return the amount of ticks so far.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * @return ticks per second over the last 5 seconds.
+     */
+    public double getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    /**
+     * @return the average tick duration over the last 5 seconds, in milliseconds.
+     */
+    public double getMillisecondsPerTick() {
+        return millisecondsPerTick;
+    }
+
+    /**
+     * @return {@code true} if ticks are taking too long on average or the loop fell behind within the last 5 seconds.
+     */
+    public boolean isOverloaded() {
+        return overloaded;
+    }
+
+    /**
+     * @return tick durations since startup.
+     */
+    public TickHistogram getHistogram() {
+        return histogram;
+    }
+
+}